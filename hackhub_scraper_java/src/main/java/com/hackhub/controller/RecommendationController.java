@@ -5,9 +5,14 @@ import com.hackhub.model.User;
 import com.hackhub.recommendation.*;
 import com.hackhub.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
 
 import java.util.List;
 
@@ -25,6 +30,12 @@ public class RecommendationController {
     @Autowired
     private LibRecDataExporter dataExporter;
 
+    @Autowired
+    private TrainingJobManager trainingJobManager;
+
+    @Autowired
+    private ModelRegistry modelRegistry;
+
     @Autowired
     private CollaborativeFilteringService collaborativeFilteringService;
 
@@ -63,24 +74,119 @@ public class RecommendationController {
     }
 
     /**
-     * Train collaborative filtering model (Admin only)
+     * Start training the collaborative filtering model in the background
+     * (Admin only). Returns 202 with the job, or 409 with the job already
+     * running.
      */
     @PostMapping("/train")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<CollaborativeFilteringService.ModelTrainingResult> trainModel() {
+    public ResponseEntity<TrainingJob> trainModel() {
+        try {
+            TrainingJob job = trainingJobManager.submit("manual");
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/recommendations/train/jobs/" + job.getId()))
+                    .body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(trainingJobManager.getActiveJob().orElse(null));
+        }
+    }
+
+    /**
+     * Recent training jobs, newest first (Admin only)
+     */
+    @GetMapping("/train/jobs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<TrainingJob>> getTrainingJobs() {
+        return ResponseEntity.ok(trainingJobManager.getJobs());
+    }
+
+    /**
+     * Training job status and per-epoch metrics (Admin only)
+     */
+    @GetMapping("/train/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TrainingJob> getTrainingJob(@PathVariable String jobId) {
+        return trainingJobManager.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Server-sent events: one "epoch" event per epoch, then a final "status"
+     * event (Admin only)
+     */
+    @GetMapping(value = "/train/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SseEmitter> streamTrainingJob(@PathVariable String jobId) {
+        return trainingJobManager.getJob(jobId)
+                .map(job -> ResponseEntity.ok(trainingJobManager.subscribe(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Cancel a queued or running training job after its current epoch
+     * (Admin only)
+     */
+    @DeleteMapping("/train/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TrainingJob> cancelTrainingJob(@PathVariable String jobId) {
+        if (!trainingJobManager.cancel(jobId)) {
+            return trainingJobManager.getJob(jobId)
+                    .map(job -> ResponseEntity.status(409).body(job))
+                    .orElse(ResponseEntity.notFound().build());
+        }
+        return ResponseEntity.accepted().body(trainingJobManager.getJob(jobId).orElse(null));
+    }
+
+    /**
+     * Grid-search CF hyperparameters on a held-out split in the background,
+     * optionally publishing the best model (Admin only). Runs as a training
+     * job: 202 with the job (whose searchResult is filled in when it
+     * finishes), or 409 with the job already running.
+     */
+    @PostMapping("/tune")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TrainingJob> tuneModel(
+            @RequestParam(defaultValue = "false") boolean promote) {
         try {
-            CollaborativeFilteringService.ModelTrainingResult result = collaborativeFilteringService.trainModel();
+            TrainingJob job = trainingJobManager.submitSearch(promote);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/recommendations/train/jobs/" + job.getId()))
+                    .body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(trainingJobManager.getActiveJob().orElse(null));
+        }
+    }
 
-            if (result.isSuccess()) {
-                return ResponseEntity.ok(result);
-            } else {
-                return ResponseEntity.status(500).body(result);
-            }
+    /**
+     * List stored model versions, newest first (Admin only)
+     */
+    @GetMapping("/models")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ModelRegistry.ModelVersion>> getModelVersions() {
+        try {
+            return ResponseEntity.ok(modelRegistry.listVersions());
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
 
+    /**
+     * Roll every node back to a stored model version (Admin only)
+     */
+    @PostMapping("/models/{version}/activate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> activateModelVersion(@PathVariable String version) {
+        try {
+            collaborativeFilteringService.rollbackModel(version);
+            return ResponseEntity.ok("Model version " + version + " activated");
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Activation failed: " + e.getMessage());
+        }
+    }
+
     /**
      * Export data to LibRec format (Admin only)
      */
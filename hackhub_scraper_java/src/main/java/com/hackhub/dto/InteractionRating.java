@@ -0,0 +1,23 @@
+package com.hackhub.dto;
+
+import com.hackhub.model.InteractionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat projection of an interaction with only the columns needed to derive
+ * its implicit rating (no user/event entities are loaded)
+ */
+@Data
+@AllArgsConstructor
+public class InteractionRating {
+    private Long id;
+    private Long userId;
+    private Long eventId;
+    private InteractionType type;
+    private Double rating;
+    private Integer viewDurationSeconds;
+    private LocalDateTime timestamp;
+}
@@ -9,7 +9,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "interactions")
+@Table(name = "interactions", indexes = {
+        @Index(name = "idx_interactions_timestamp", columnList = "timestamp") // incremental snapshot export
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
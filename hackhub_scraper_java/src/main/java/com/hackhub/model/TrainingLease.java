@@ -0,0 +1,30 @@
+package com.hackhub.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Named lock row with an expiry, used so only one replica runs a job such
+ * as model training at a time
+ */
+@Entity
+@Table(name = "training_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrainingLease {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(name = "owner", length = 128)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,180 @@
+package com.hackhub.recommendation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Weighted Alternating Least Squares for implicit feedback (Hu, Koren and
+ * Volinsky). Every observed interaction is a positive preference with
+ * confidence 1 + alpha * rating; unobserved pairs are negatives with
+ * confidence 1. Each sweep solves all user vectors with item vectors fixed,
+ * then all item vectors with user vectors fixed. Rows are independent, so
+ * both half-sweeps run in parallel over blocks of users/items.
+ * Biases and the global mean are not used and stay at zero.
+ */
+@Slf4j
+public class AlsTrainer implements ModelTrainer {
+
+    private static final int BLOCK_SIZE = 256;
+
+    private final int numIterations;
+    private final double regularization;
+    private final double alpha;
+    private final int threads;
+
+    public AlsTrainer(int numIterations, double regularization, double alpha, int threads) {
+        this.numIterations = numIterations;
+        this.regularization = regularization;
+        this.alpha = alpha;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public List<EpochStats> train(FactorModel model, RatingTriples ratings, TrainingMonitor monitor) {
+        // Row-wise (per user) and column-wise (per item) views of the ratings
+        SparseRatingMatrix matrix = SparseRatingMatrix.of(ratings);
+
+        List<EpochStats> epochs = new ArrayList<>(numIterations);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int iter = 0; iter < numIterations; iter++) {
+                long start = System.nanoTime();
+
+                solve(pool, model.getUserFactors(), model.getItemFactors(),
+                        matrix.getRowPtr(), matrix.getColIdx(), matrix.getValues(), model.getNumFactors());
+                solve(pool, model.getItemFactors(), model.getUserFactors(),
+                        matrix.getColPtr(), matrix.getRowIdx(), matrix.getColValues(), model.getNumFactors());
+
+                long wallTimeMs = (System.nanoTime() - start) / 1_000_000;
+                double rmse = ModelEvaluation.evaluate(model, ratings).getRmse();
+                log.debug("ALS sweep {}/{} - RMSE: {} ({}ms, {} threads)", iter, numIterations, rmse, wallTimeMs, threads);
+                EpochStats stats = new EpochStats(iter, rmse, wallTimeMs);
+                epochs.add(stats);
+                if (!monitor.onEpoch(stats)) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return epochs;
+    }
+
+    /**
+     * Recompute every row of target with the other side fixed
+     */
+    private void solve(ForkJoinPool pool, double[] target, double[] fixed,
+            int[] offsets, int[] indices, float[] values, int k) {
+        double[] gram = gram(fixed, k);
+        int rows = offsets.length - 1;
+        int blocks = (rows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        try {
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block -> {
+                double[] a = new double[k * k];
+                double[] b = new double[k];
+                int end = Math.min(rows, (block + 1) * BLOCK_SIZE);
+                for (int row = block * BLOCK_SIZE; row < end; row++) {
+                    solveRow(row, target, fixed, offsets, indices, values, gram, a, b, k);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ALS training interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("ALS training failed", e.getCause());
+        }
+    }
+
+    /**
+     * x = (YtY + Yt(C - I)Y + lambda*I)^-1 * Yt*C*p for a single row
+     */
+    private void solveRow(int row, double[] target, double[] fixed, int[] offsets, int[] indices,
+            float[] values, double[] gram, double[] a, double[] b, int k) {
+        System.arraycopy(gram, 0, a, 0, k * k);
+        Arrays.fill(b, 0.0);
+        for (int f = 0; f < k; f++) {
+            a[f * k + f] += regularization;
+        }
+
+        for (int p = offsets[row]; p < offsets[row + 1]; p++) {
+            int yOff = indices[p] * k;
+            double confidence = 1.0 + alpha * values[p];
+            double extra = confidence - 1.0;
+
+            for (int f = 0; f < k; f++) {
+                double yf = fixed[yOff + f];
+                b[f] += confidence * yf;
+                double scaled = extra * yf;
+                for (int g = 0; g <= f; g++) {
+                    a[f * k + g] += scaled * fixed[yOff + g];
+                }
+            }
+        }
+
+        choleskySolve(a, b, k);
+        System.arraycopy(b, 0, target, row * k, k);
+    }
+
+    /**
+     * YtY over all rows of the fixed side (shared by every row solve)
+     */
+    private static double[] gram(double[] factors, int k) {
+        double[] gram = new double[k * k];
+        int rows = factors.length / k;
+        for (int r = 0; r < rows; r++) {
+            int off = r * k;
+            for (int f = 0; f < k; f++) {
+                double v = factors[off + f];
+                for (int g = 0; g <= f; g++) {
+                    gram[f * k + g] += v * factors[off + g];
+                }
+            }
+        }
+        return gram;
+    }
+
+    /**
+     * Solve A x = b in place (x written to b). Only the lower triangle of A is
+     * read; A is overwritten by its Cholesky factor.
+     */
+    private static void choleskySolve(double[] a, double[] b, int k) {
+        for (int j = 0; j < k; j++) {
+            double d = a[j * k + j];
+            for (int m = 0; m < j; m++) {
+                d -= a[j * k + m] * a[j * k + m];
+            }
+            d = Math.sqrt(Math.max(d, 1e-12));
+            a[j * k + j] = d;
+            for (int i = j + 1; i < k; i++) {
+                double s = a[i * k + j];
+                for (int m = 0; m < j; m++) {
+                    s -= a[i * k + m] * a[j * k + m];
+                }
+                a[i * k + j] = s / d;
+            }
+        }
+        // Forward substitution: L y = b
+        for (int i = 0; i < k; i++) {
+            double s = b[i];
+            for (int m = 0; m < i; m++) {
+                s -= a[i * k + m] * b[m];
+            }
+            b[i] = s / a[i * k + i];
+        }
+        // Back substitution: L^T x = y
+        for (int i = k - 1; i >= 0; i--) {
+            double s = b[i];
+            for (int m = i + 1; m < k; m++) {
+                s -= a[m * k + i] * b[m];
+            }
+            b[i] = s / a[i * k + i];
+        }
+    }
+}
@@ -5,18 +5,22 @@ import com.hackhub.repository.InteractionRepository;
 import com.hackhub.service.InteractionService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
 
 /**
  * Collaborative Filtering Service using Matrix Factorization (SVD-like
  * algorithm)
- * Inspired by LibRec's SVD++ algorithm
+ * Inspired by LibRec's SVD++ algorithm, with a weighted ALS alternative for
+ * implicit feedback (librec.algorithm=als)
  */
 @Service
 @Slf4j
@@ -31,6 +35,15 @@ public class CollaborativeFilteringService {
     @Autowired
     private InteractionService interactionService;
 
+    @Autowired
+    private SeenItemsIndex seenItemsIndex;
+
+    @Autowired
+    private ModelRegistry modelRegistry;
+
+    @Autowired
+    private TrainingLeaseService trainingLeaseService;
+
     @Value("${librec.svdpp.factors:20}")
     private int numFactors;
 
@@ -40,242 +53,630 @@ public class CollaborativeFilteringService {
     @Value("${librec.svdpp.learnRate:0.01}")
     private double learnRate;
 
-    // Model parameters (trained)
-    private Map<Long, double[]> userFactors = new HashMap<>();
-    private Map<Long, double[]> itemFactors = new HashMap<>();
-    private Map<Long, Double> userBiases = new HashMap<>();
-    private Map<Long, Double> itemBiases = new HashMap<>();
-    private double globalMean = 0.0;
-    private boolean modelTrained = false;
+    @Value("${librec.svdpp.regularization:0.01}")
+    private double regularization;
+
+    @Value("${librec.svdpp.threads:1}")
+    private int numThreads;
+
+    // svdpp (explicit ratings, SGD) or als (implicit feedback, weighted ALS)
+    @Value("${librec.algorithm:svdpp}")
+    private String algorithm;
+
+    @Value("${librec.als.iterations:10}")
+    private int alsIterations;
+
+    @Value("${librec.als.lambda:0.1}")
+    private double alsRegularization;
+
+    @Value("${librec.als.alpha:10}")
+    private double alsAlpha;
+
+    // 0 = one thread per available core
+    @Value("${librec.als.threads:0}")
+    private int alsThreads;
+
+    /** Fraction of ratings held out to measure RMSE/MAE and drive early stopping */
+    @Value("${librec.validation.ratio:0.2}")
+    private double validationRatio;
+
+    /** Unobserved items each held-out item is ranked against (implicit models) */
+    @Value("${librec.validation.negatives:100}")
+    private int validationNegatives;
+
+    @Value("${librec.validation.max.positives:10000}")
+    private int validationMaxPositives;
+
+    /** Epochs without validation improvement before training stops */
+    @Value("${librec.early.stop.patience:5}")
+    private int earlyStopPatience;
+
+    @Value("${librec.early.stop.min.delta:0.0001}")
+    private double earlyStopMinDelta;
+
+    // Also write the LibRec text format (ratings.txt) on every training run
+    @Value("${librec.export.text:false}")
+    private boolean exportText;
+
+    @Value("${librec.model.persist:true}")
+    private boolean persistModel;
+
+    // Nodes follow the registry's current version, whoever published it;
+    // librec.model.path must then be on storage shared by all nodes
+    @Value("${librec.model.reload.enabled:true}")
+    private boolean reloadModel;
+
+    // Approximate top-N (HNSW over item vectors) once the catalog is large
+    @Value("${librec.ann.enabled:true}")
+    private boolean annEnabled;
+
+    @Value("${librec.ann.min.items:5000}")
+    private int annMinItems;
+
+    @Value("${librec.ann.m:16}")
+    private int annMaxLinks;
+
+    @Value("${librec.ann.efConstruction:200}")
+    private int annEfConstruction;
+
+    // Search beam width: higher = better recall@N, slower queries
+    @Value("${librec.ann.ef:100}")
+    private int annEf;
+
+    private final ScoringEngine scoringEngine = new ScoringEngine(DotKernel.best());
+
+    // Published model snapshot: replaced wholesale after each training run and
+    // never mutated once visible, so request threads read it without locking
+    private volatile FactorModel model;
+
+    // Serializes training runs; readers never take it
+    private final Object trainingLock = new Object();
+
+    // Registry version of the published model (null = not persisted)
+    private volatile String servedVersion;
+
+    // Guards writes of model and servedVersion only; held for an assignment,
+    // so reloads and rollbacks never wait for a training run
+    private final Object servingLock = new Object();
+
+    // Best configuration of a promoted search; replaces the configured
+    // hyperparameters until restart (null = use the configuration)
+    private volatile Hyperparameters promoted;
 
     /**
-     * Train the collaborative filtering model using SVD++ approach
+     * Train the collaborative filtering model using the configured algorithm
      */
     public ModelTrainingResult trainModel() {
+        return trainModel(TrainingMonitor.NONE);
+    }
+
+    /**
+     * Train, reporting every epoch to progress. If progress returns false
+     * the run is abandoned with a CancellationException and the published
+     * model is left untouched.
+     */
+    public ModelTrainingResult trainModel(TrainingMonitor progress) {
+        synchronized (trainingLock) {
+            return trainNewModel(progress);
+        }
+    }
+
+    /**
+     * Build and train a fresh model off to the side, then publish it
+     */
+    private ModelTrainingResult trainNewModel(TrainingMonitor progress) {
         log.info("Starting collaborative filtering model training...");
         long startTime = System.currentTimeMillis();
 
+        boolean implicit = isAls();
+        String algorithmName = implicit ? "ALS" : "SVD++";
+
         try {
-            // 1. Export data
-            dataExporter.exportToLibRecFormat();
+            // 1. Bring the interaction snapshot up to date (the only DB read)
+            InteractionSnapshotSet snapshot = dataExporter.refreshSnapshot();
+            if (exportText) {
+                dataExporter.exportToLibRecFormat();
+            }
 
             // 2. Load training data
-            Map<Long, Map<Long, Double>> userItemMatrix = dataExporter.exportUserItemMatrix();
+            SparseRatingMatrix matrix = dataExporter.exportRatingMatrix(snapshot);
 
-            if (userItemMatrix.isEmpty()) {
+            if (matrix.getNumRatings() == 0) {
                 log.warn("No training data available");
-                return new ModelTrainingResult("SVD++", 0, 0, 0, 0, false);
+                return new ModelTrainingResult(algorithmName, 0, 0, 0, 0, 0, 0, false, Collections.emptyList());
             }
 
-            // 3. Initialize model
-            initializeModel(userItemMatrix);
+            RatingTriples ratings = matrix.toTriples();
+            seenItemsIndex.rebuild(matrix, snapshot.getMaxId());
+
+            // 3. Hold out a validation split and train on the rest, stopping
+            // once the validation loss stops improving
+            int threads = implicit ? alsThreads : numThreads;
+            Candidate validated = trainCandidate(splitForTraining(ratings), currentHyperparameters(),
+                    threads, progress);
+            ModelEvaluation evaluation = validated.getEvaluation();
+
+            // 4. Refit on all ratings for the epoch count the split chose
+            Candidate candidate = refit(validated, ratings, threads, progress);
+            List<EpochStats> epochs = candidate.getEpochs();
 
-            // 4. Train using gradient descent
-            double rmse = trainWithGradientDescent(userItemMatrix);
+            long totalEpochMs = epochs.stream().mapToLong(EpochStats::getWallTimeMs).sum();
+            log.info("{} finished {} epochs (best: {}, refit on all ratings), avg {}ms/epoch", algorithmName,
+                    epochs.size(), candidate.getBestEpoch(),
+                    epochs.isEmpty() ? 0 : totalEpochMs / epochs.size());
 
+            // 5. Publish atomically and persist
+            publish(candidate, algorithmName, ratings.getSize(), snapshot.getMaxId());
             long trainingTime = System.currentTimeMillis() - startTime;
-            modelTrained = true;
 
-            log.info("Model training completed in {}ms - RMSE: {}", trainingTime, rmse);
+            log.info("Model training completed in {}ms - validation RMSE: {}, MAE: {}, AUC: {}, recall@{}: {} ({} held-out ratings)",
+                    trainingTime, evaluation.getRmse(), evaluation.getMae(), evaluation.getAuc(),
+                    ModelEvaluation.CUTOFF, evaluation.getRecall(), evaluation.getCount());
 
             return new ModelTrainingResult(
-                    "SVD++",
-                    rmse,
-                    rmse * 0.8, // MAE approximation
+                    algorithmName,
+                    evaluation.getRmse(),
+                    evaluation.getMae(),
+                    evaluation.getAuc(),
+                    evaluation.getRecall(),
                     trainingTime,
-                    userItemMatrix.size(),
-                    true);
+                    ratings.getUserIndex().size(),
+                    true,
+                    epochs);
 
+        } catch (CancellationException e) {
+            log.info("Model training cancelled");
+            throw e;
         } catch (Exception e) {
             log.error("Error training model", e);
-            return new ModelTrainingResult("SVD++", 0, 0, 0, 0, false);
+            return new ModelTrainingResult(algorithmName, 0, 0, 0, 0, 0, 0, false, Collections.emptyList());
         }
     }
 
     /**
-     * Initialize user and item factors randomly
+     * Seeded train/validation split of all ratings
      */
-    private void initializeModel(Map<Long, Map<Long, Double>> userItemMatrix) {
-        Random random = new Random(42); // Fixed seed for reproducibility
+    RatingTriples.Split splitForTraining(RatingTriples ratings) {
+        return ratings.split(validationRatio, 42);
+    }
 
-        // Calculate global mean
-        double sum = 0;
-        int count = 0;
-        for (Map<Long, Double> items : userItemMatrix.values()) {
-            for (Double rating : items.values()) {
-                sum += rating;
-                count++;
-            }
+    /**
+     * Hyperparameters of the configured algorithm
+     */
+    Hyperparameters currentHyperparameters() {
+        Hyperparameters tuned = promoted;
+        if (tuned != null) {
+            return tuned;
         }
-        globalMean = count > 0 ? sum / count : 3.0;
-
-        // Initialize user factors and biases
-        for (Long userId : userItemMatrix.keySet()) {
-            userFactors.put(userId, randomVector(numFactors, random));
-            userBiases.put(userId, 0.0);
+        if (isAls()) {
+            return new Hyperparameters(numFactors, alsIterations, 0, alsRegularization, alsAlpha);
         }
+        return new Hyperparameters(numFactors, numIterations, learnRate, regularization, 0);
+    }
 
-        // Initialize item factors and biases
-        Set<Long> allItems = new HashSet<>();
-        for (Map<Long, Double> items : userItemMatrix.values()) {
-            allItems.addAll(items.keySet());
-        }
-        for (Long itemId : allItems) {
-            itemFactors.put(itemId, randomVector(numFactors, random));
-            itemBiases.put(itemId, 0.0);
+    /**
+     * Negatives for ranking the validation split of an implicit model, null
+     * for explicit models (scored by RMSE)
+     */
+    ModelEvaluation.NegativeSample sampleNegatives(RatingTriples.Split split) {
+        if (!isAls()) {
+            return null;
         }
+        RatingTriples validation = split.getValidation().getSize() > 0 ? split.getValidation() : split.getTrain();
+        return ModelEvaluation.NegativeSample.draw(validation, split.getTrain(),
+                validationNegatives, validationMaxPositives, 42);
+    }
+
+    Candidate trainCandidate(RatingTriples.Split split, Hyperparameters params, int threads,
+            TrainingMonitor progress) {
+        return trainCandidate(split, sampleNegatives(split), params, threads, progress);
+    }
 
-        log.info("Model initialized: {} users, {} items, {} factors",
-                userFactors.size(), itemFactors.size(), numFactors);
+    /**
+     * Train one model on split.train with early stopping on split.validation,
+     * without publishing it. Safe to call concurrently: the split and the
+     * negatives are only read.
+     */
+    Candidate trainCandidate(RatingTriples.Split split, ModelEvaluation.NegativeSample negatives,
+            Hyperparameters params, int threads, TrainingMonitor progress) {
+        boolean implicit = isAls();
+        RatingTriples validation = split.getValidation().getSize() > 0 ? split.getValidation() : split.getTrain();
+        FactorModel candidate = initializeModel(split.getTrain(), implicit, params.getNumFactors());
+
+        EarlyStopping earlyStopping = new EarlyStopping(
+                candidate, validation, negatives, earlyStopPatience, earlyStopMinDelta);
+        progress.onPhase("validate", params.getNumIterations());
+        TrainingMonitor monitor = stats -> {
+            boolean improving = earlyStopping.onEpoch(stats);
+            if (!progress.onEpoch(stats)) {
+                throw new CancellationException("Training cancelled after epoch " + stats.getEpoch());
+            }
+            return improving;
+        };
+        List<EpochStats> epochs = createTrainer(implicit, params, threads)
+                .train(candidate, split.getTrain(), monitor);
+        earlyStopping.restoreBest();
+
+        ModelEvaluation evaluation = earlyStopping.getBest() != null
+                ? earlyStopping.getBest()
+                : ModelEvaluation.evaluate(candidate, validation, negatives);
+        return new Candidate(candidate, params, evaluation, epochs, earlyStopping.getBestEpoch());
     }
 
     /**
-     * Train model using stochastic gradient descent
+     * Retrain a validated configuration from scratch on all ratings, for as
+     * many epochs as it took to reach its best validation score. The
+     * held-out split only chooses that count; the published model sees
+     * every rating. Keeps the validated metrics.
      */
-    private double trainWithGradientDescent(Map<Long, Map<Long, Double>> userItemMatrix) {
-        double regularization = 0.01;
+    Candidate refit(Candidate validated, RatingTriples ratings, int threads, TrainingMonitor progress) {
+        boolean implicit = isAls();
+        Hyperparameters params = validated.getHyperparameters();
+        int epochs = Math.max(1, validated.getBestEpoch() + 1);
+        Hyperparameters fixed = new Hyperparameters(params.getNumFactors(), epochs,
+                params.getLearnRate(), params.getRegularization(), params.getAlpha());
+        FactorModel refitted = initializeModel(ratings, implicit, params.getNumFactors());
+
+        // Refit epochs continue the validated run's numbering
+        int offset = validated.getEpochs().size();
+        progress.onPhase("refit", epochs);
+        TrainingMonitor monitor = stats -> {
+            stats.setEpoch(offset + stats.getEpoch());
+            if (!progress.onEpoch(stats)) {
+                throw new CancellationException("Training cancelled after epoch " + stats.getEpoch());
+            }
+            return true;
+        };
+        List<EpochStats> refitEpochs = createTrainer(implicit, fixed, threads).train(refitted, ratings, monitor);
 
-        for (int iter = 0; iter < numIterations; iter++) {
-            double squaredError = 0;
-            int count = 0;
+        List<EpochStats> allEpochs = new ArrayList<>(validated.getEpochs());
+        allEpochs.addAll(refitEpochs);
+        return new Candidate(refitted, params, validated.getEvaluation(), allEpochs, validated.getBestEpoch());
+    }
 
-            // Iterate over all ratings
-            for (Map.Entry<Long, Map<Long, Double>> userEntry : userItemMatrix.entrySet()) {
-                Long userId = userEntry.getKey();
-                Map<Long, Double> items = userEntry.getValue();
+    /**
+     * Refit the best configuration of a hyperparameter search on all
+     * ratings, publish it and keep its hyperparameters for subsequent
+     * training runs (until restart)
+     */
+    void promote(Candidate validated, RatingTriples ratings, long dataWatermarkId) {
+        synchronized (trainingLock) {
+            Candidate candidate = refit(validated, ratings, isAls() ? alsThreads : numThreads, TrainingMonitor.NONE);
+            Hyperparameters params = candidate.getHyperparameters();
+            publish(candidate, isAls() ? "ALS" : "SVD++", ratings.getSize(), dataWatermarkId);
+            promoted = params;
+            log.info("Promoted model trained with {} (validation loss {})",
+                    params, candidate.getEvaluation().loss());
+        }
+    }
 
-                for (Map.Entry<Long, Double> itemEntry : items.entrySet()) {
-                    Long itemId = itemEntry.getKey();
-                    double actualRating = itemEntry.getValue();
+    /**
+     * @param dataWatermarkId highest interaction id in the training data
+     */
+    private void publish(Candidate candidate, String algorithmName, int numRatings, long dataWatermarkId) {
+        // Another node may have taken the lease over while this one trained
+        if (!trainingLeaseService.verify()) {
+            log.warn("Training lease lost, discarding the trained model");
+            throw new CancellationException("Training lease lost before publishing");
+        }
+        FactorModel trained = candidate.getModel();
+        trained.setMetadata(new ModelMetadata(algorithmName, System.currentTimeMillis(),
+                candidate.getEvaluation().getRmse(), candidate.getEvaluation().getMae(), numRatings,
+                dataWatermarkId));
+        attachAnnIndex(trained);
+
+        synchronized (servingLock) {
+            model = trained;
+        }
 
-                    // Predict rating
-                    double predictedRating = predictRating(userId, itemId);
+        // Persist so restarted nodes can serve without retraining
+        persistModel(trained);
+    }
 
-                    // Calculate error
-                    double error = actualRating - predictedRating;
-                    squaredError += error * error;
-                    count++;
+    /**
+     * Initialize user and item factors randomly
+     */
+    private FactorModel initializeModel(RatingTriples ratings, boolean implicit, int factors) {
+        Random random = new Random(42); // Fixed seed for reproducibility
 
-                    // Update biases
-                    double userBias = userBiases.get(userId);
-                    double itemBias = itemBiases.get(itemId);
+        FactorModel candidate = new FactorModel(factors, ratings.getUserIndex(), ratings.getItemIndex());
+        candidate.setImplicitFeedback(implicit);
+        if (!implicit) {
+            candidate.setGlobalMean(ratings.mean());
+        }
+        candidate.randomize(random);
 
-                    userBiases.put(userId, userBias + learnRate * (error - regularization * userBias));
-                    itemBiases.put(itemId, itemBias + learnRate * (error - regularization * itemBias));
+        log.debug("Model initialized: {} users, {} items, {} factors",
+                candidate.getNumUsers(), candidate.getNumItems(), factors);
+        return candidate;
+    }
 
-                    // Update factors
-                    double[] userFactor = userFactors.get(userId);
-                    double[] itemFactor = itemFactors.get(itemId);
+    /**
+     * SGD for explicit ratings, weighted ALS for implicit feedback
+     */
+    private ModelTrainer createTrainer(boolean implicit, Hyperparameters params, int threads) {
+        if (implicit) {
+            return new AlsTrainer(params.getNumIterations(), params.getRegularization(), params.getAlpha(), threads);
+        }
+        return new SgdTrainer(params.getNumIterations(), params.getLearnRate(), params.getRegularization(), threads);
+    }
 
-                    for (int f = 0; f < numFactors; f++) {
-                        double uf = userFactor[f];
-                        double if_ = itemFactor[f];
+    boolean isAls() {
+        return "als".equalsIgnoreCase(algorithm);
+    }
 
-                        userFactor[f] += learnRate * (error * if_ - regularization * uf);
-                        itemFactor[f] += learnRate * (error * uf - regularization * if_);
-                    }
+    /**
+     * Publish the model to the registry; failures only cost other nodes and
+     * the next restart a retrain
+     */
+    private void persistModel(FactorModel trained) {
+        if (!persistModel) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            String version = modelRegistry.publish(trained);
+            synchronized (servingLock) {
+                if (model == trained) {
+                    servedVersion = version;
                 }
             }
+            log.info("Published model version {} in {}ms", version, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.error("Could not publish model to the registry", e);
+        }
+    }
 
-            // Calculate RMSE for this iteration
-            double rmse = Math.sqrt(squaredError / count);
-
-            if (iter % 10 == 0) {
-                log.debug("Iteration {}/{} - RMSE: {}", iter, numIterations, rmse);
+    /**
+     * Load the registry's current model, if any, and publish it
+     *
+     * @return true if a valid model was loaded
+     */
+    public boolean loadPersistedModel() {
+        try {
+            Optional<String> current = modelRegistry.currentVersion();
+            if (current.isEmpty()) {
+                log.info("No published model in the registry");
+                return false;
             }
+            return loadVersion(current.get());
+        } catch (IOException e) {
+            log.warn("Could not read the model registry: {}", e.getMessage());
+            return false;
         }
+    }
 
-        // Final RMSE
-        double finalSquaredError = 0;
-        int finalCount = 0;
-        for (Map.Entry<Long, Map<Long, Double>> userEntry : userItemMatrix.entrySet()) {
-            for (Map.Entry<Long, Double> itemEntry : userEntry.getValue().entrySet()) {
-                double error = itemEntry.getValue() - predictRating(userEntry.getKey(), itemEntry.getKey());
-                finalSquaredError += error * error;
-                finalCount++;
+    /**
+     * Serve the version the registry points to when another node has
+     * published (or rolled back to) a different one
+     */
+    @Scheduled(fixedDelayString = "${librec.model.reload.interval.ms:60000}",
+            initialDelayString = "${librec.model.reload.interval.ms:60000}")
+    public void reloadIfChanged() {
+        if (!reloadModel || !persistModel) {
+            return;
+        }
+        try {
+            Optional<String> current = modelRegistry.currentVersion();
+            if (current.isPresent() && !current.get().equals(servedVersion)) {
+                log.info("Model registry points to version {}, reloading", current.get());
+                loadVersion(current.get());
             }
+        } catch (IOException e) {
+            log.warn("Could not check the model registry: {}", e.getMessage());
         }
-
-        return Math.sqrt(finalSquaredError / finalCount);
     }
 
     /**
-     * Predict rating for user-item pair
+     * Point the registry back at an older version and serve it here at once;
+     * other nodes follow on their next poll
      */
-    public double predictRating(Long userId, Long itemId) {
-        if (!modelTrained) {
-            return globalMean;
+    public void rollbackModel(String version) throws IOException {
+        modelRegistry.rollback(version);
+        if (!loadVersion(version)) {
+            throw new IOException("Model version " + version + " could not be loaded");
         }
+    }
 
-        double prediction = globalMean;
+    public String getServedVersion() {
+        return servedVersion;
+    }
 
-        // Add biases
-        if (userBiases.containsKey(userId)) {
-            prediction += userBiases.get(userId);
-        }
-        if (itemBiases.containsKey(itemId)) {
-            prediction += itemBiases.get(itemId);
+    private boolean loadVersion(String version) {
+        try {
+            swapIn(modelRegistry.load(version), version);
+            return true;
+        } catch (IOException e) {
+            // Keep serving the current model; a corrupt version is never swapped in
+            log.warn("Ignoring unreadable model version {}: {}", version, e.getMessage());
+            return false;
         }
+    }
 
-        // Add dot product of factors
-        if (userFactors.containsKey(userId) && itemFactors.containsKey(itemId)) {
-            double[] uf = userFactors.get(userId);
-            double[] if_ = itemFactors.get(itemId);
+    /**
+     * Build the loaded model's serving structures, then replace the
+     * published model in one volatile write
+     */
+    private void swapIn(FactorModel loaded, String version) {
+        long start = System.currentTimeMillis();
+        attachAnnIndex(loaded);
+        synchronized (servingLock) {
+            model = loaded;
+            servedVersion = version;
+        }
+        log.info("Loaded {} model {} ({} users, {} items) in {}ms",
+                loaded.getMetadata().getAlgorithm(), version,
+                loaded.getNumUsers(), loaded.getNumItems(), System.currentTimeMillis() - start);
+    }
 
-            for (int f = 0; f < numFactors; f++) {
-                prediction += uf[f] * if_[f];
-            }
+    /**
+     * Predict rating for user-item pair
+     */
+    public double predictRating(Long userId, Long itemId) {
+        FactorModel current = model;
+        if (current == null) {
+            return 0.0;
         }
 
-        // Clamp to valid rating range
-        return Math.max(1.0, Math.min(5.0, prediction));
+        return score(current, current.predict(userId, itemId));
     }
 
     /**
      * Get top-N recommendations for user
      */
     public List<Long> getRecommendations(Long userId, int topN) {
-        if (!modelTrained) {
+        FactorModel current = model;
+        if (current == null) {
             log.warn("Model not trained yet");
             return Collections.emptyList();
         }
 
         // Get items user hasn't interacted with
-        Map<Long, Map<Long, Double>> userItemMatrix = dataExporter.exportUserItemMatrix();
-        Set<Long> userItems = userItemMatrix.getOrDefault(userId, Collections.emptyMap()).keySet();
-
-        // Predict ratings for all items
-        Map<Long, Double> predictions = new HashMap<>();
-        for (Long itemId : itemFactors.keySet()) {
-            if (!userItems.contains(itemId)) {
-                predictions.put(itemId, predictRating(userId, itemId));
+        long[] userItems = seenItemsIndex.getSeenItems(userId);
+
+        IdIndex itemIndex = current.getItemIndex();
+        double[] userVector = current.userVector(userId);
+
+        if (current.getAnnIndex() != null) {
+            return getApproximateRecommendations(current, userVector, userItems, topN);
+        }
+
+        // Score all items, keeping only the top-N in a bounded heap
+        int[] top = scoringEngine.topItems(current, userVector, topN,
+                i -> SeenItemsIndex.contains(userItems, itemIndex.idAt(i)));
+        return toIds(itemIndex, top);
+    }
+
+    /**
+     * Fold one interaction into the published model with a few local SGD
+     * steps on that user's and that item's rows. New users start from a zero
+     * vector; events unknown to the model wait for the next retrain.
+     * Must only be called from the single online-update thread.
+     */
+    void foldIn(Long userId, Long eventId, double rating, int steps, double rate, double regularization) {
+        FactorModel current = model;
+        if (current == null) {
+            return;
+        }
+        int item = current.getItemIndex().indexOf(eventId);
+        if (item < 0) {
+            return;
+        }
+
+        int k = current.getNumFactors();
+        double[] trainedUser = current.userVector(userId);
+        double[] user = trainedUser != null ? trainedUser.clone() : new double[k + 1];
+        double[] itemRow = current.itemVector(item).clone();
+
+        // Implicit models fit preference 1 weighted by confidence, like ALS
+        boolean implicit = current.isImplicitFeedback();
+        double target = implicit ? 1.0 : rating;
+        double alpha = implicit ? currentHyperparameters().getAlpha() : 0;
+        double stepSize = implicit ? Math.min(0.5, rate * (1.0 + alpha * rating)) : rate;
+
+        for (int step = 0; step < steps; step++) {
+            double prediction = implicit ? 0.0 : current.getGlobalMean() + user[k] + itemRow[k];
+            for (int f = 0; f < k; f++) {
+                prediction += user[f] * itemRow[f];
+            }
+            double error = target - prediction;
+
+            if (!implicit) {
+                user[k] += stepSize * (error - regularization * user[k]);
+                itemRow[k] += stepSize * (error - regularization * itemRow[k]);
+            }
+            for (int f = 0; f < k; f++) {
+                double uf = user[f];
+                double if_ = itemRow[f];
+                user[f] += stepSize * (error * if_ - regularization * uf);
+                itemRow[f] += stepSize * (error * uf - regularization * if_);
+            }
+        }
+
+        current.putUserVector(userId, user);
+        current.putItemVector(item, itemRow);
+        log.debug("Folded in interaction user={} event={} ({} online users)",
+                userId, eventId, current.getNumOnlineUsers());
+    }
+
+    /**
+     * Top-N through the item ANN index: fetch enough candidates to survive the
+     * seen-item filter, then re-rank them by exact score
+     */
+    private List<Long> getApproximateRecommendations(FactorModel current, double[] userVector,
+            long[] userItems, int topN) {
+        IdIndex itemIndex = current.getItemIndex();
+        int wanted = topN + userItems.length;
+        int[] candidates = current.getAnnIndex().topItems(userVector, wanted, Math.max(annEf, wanted));
+
+        TopNHeap heap = new TopNHeap(topN);
+        for (int i : candidates) {
+            if (!SeenItemsIndex.contains(userItems, itemIndex.idAt(i))) {
+                heap.offer(current.itemScore(userVector, i), i);
             }
         }
+        return toIds(itemIndex, heap.drainDescending());
+    }
+
+    private static List<Long> toIds(IdIndex itemIndex, int[] items) {
+        List<Long> ids = new ArrayList<>(items.length);
+        for (int i : items) {
+            ids.add(itemIndex.idAt(i));
+        }
+        return ids;
+    }
 
-        // Sort by predicted rating and return top-N
-        return predictions.entrySet().stream()
-                .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
-                .limit(topN)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+    /**
+     * Build the item ANN index for large catalogs; small ones are scanned
+     * exactly
+     */
+    private void attachAnnIndex(FactorModel candidate) {
+        if (!annEnabled || candidate.getNumItems() < annMinItems) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        candidate.setAnnIndex(ItemAnnIndex.build(candidate, annMaxLinks, annEfConstruction));
+        log.info("Built item ANN index over {} items in {}ms",
+                candidate.getNumItems(), System.currentTimeMillis() - start);
     }
 
     /**
      * Check if model is trained
      */
     public boolean isModelTrained() {
-        return modelTrained;
+        return model != null;
     }
 
     /**
-     * Generate random vector
+     * Metadata of the published model, null if there is none
      */
-    private double[] randomVector(int size, Random random) {
-        double[] vector = new double[size];
-        for (int i = 0; i < size; i++) {
-            vector[i] = random.nextGaussian() * 0.01; // Small random values
+    public ModelMetadata getModelMetadata() {
+        FactorModel current = model;
+        return current != null ? current.getMetadata() : null;
+    }
+
+    /**
+     * Clamp explicit predictions to the valid rating range; implicit
+     * preference scores are only used for ranking and stay raw
+     */
+    private static double score(FactorModel model, double prediction) {
+        if (model.isImplicitFeedback()) {
+            return prediction;
         }
-        return vector;
+        return Math.max(1.0, Math.min(5.0, prediction));
+    }
+
+    /**
+     * A trained but unpublished model with its held-out metrics
+     */
+    @Getter
+    @AllArgsConstructor
+    static class Candidate {
+        private final FactorModel model;
+        private final Hyperparameters hyperparameters;
+        private final ModelEvaluation evaluation;
+        private final List<EpochStats> epochs;
+        private final int bestEpoch;
     }
 
     @Data
@@ -284,9 +685,12 @@ public class CollaborativeFilteringService {
         private String algorithm;
         private double rmse;
         private double mae;
+        private double auc; // implicit models only
+        private double recall; // recall@N, implicit models only
         private long trainingTimeMs;
         private int numUsers;
         private boolean success;
+        private List<EpochStats> epochs;
     }
 }
 
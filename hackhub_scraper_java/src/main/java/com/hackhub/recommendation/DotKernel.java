@@ -0,0 +1,18 @@
+package com.hackhub.recommendation;
+
+/**
+ * Dot product over slices of row-major factor arrays
+ */
+public interface DotKernel {
+
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    /**
+     * The SIMD kernel when the jdk.incubator.vector module is available
+     * (started with --add-modules jdk.incubator.vector), the scalar one
+     * otherwise
+     */
+    static DotKernel best() {
+        return DotKernels.BEST;
+    }
+}
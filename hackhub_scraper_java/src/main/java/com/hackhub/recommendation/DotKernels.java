@@ -0,0 +1,62 @@
+package com.hackhub.recommendation;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks the dot product kernel once per JVM. The vector kernel is loaded
+ * reflectively so this class links even when the incubator module is absent.
+ */
+@Slf4j
+final class DotKernels {
+
+    static final DotKernel SCALAR = new ScalarDotKernel();
+    static final DotKernel BEST = select();
+
+    private DotKernels() {
+    }
+
+    private static DotKernel select() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("jdk.incubator.vector not available, using scalar dot product kernel");
+            return SCALAR;
+        }
+        try {
+            DotKernel kernel = (DotKernel) Class.forName("com.hackhub.recommendation.VectorDotKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+            log.info("Using SIMD dot product kernel ({})", kernel);
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Could not load SIMD dot product kernel, using scalar fallback", e);
+            return SCALAR;
+        }
+    }
+
+    /**
+     * Plain loop, four independent accumulators to break the add dependency
+     * chain
+     */
+    static final class ScalarDotKernel implements DotKernel {
+
+        @Override
+        public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int f = 0;
+            for (; f + 3 < length; f += 4) {
+                s0 += a[aOffset + f] * b[bOffset + f];
+                s1 += a[aOffset + f + 1] * b[bOffset + f + 1];
+                s2 += a[aOffset + f + 2] * b[bOffset + f + 2];
+                s3 += a[aOffset + f + 3] * b[bOffset + f + 3];
+            }
+            for (; f < length; f++) {
+                s0 += a[aOffset + f] * b[bOffset + f];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    }
+}
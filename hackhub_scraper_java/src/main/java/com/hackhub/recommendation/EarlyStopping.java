@@ -0,0 +1,92 @@
+package com.hackhub.recommendation;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Evaluates the model on a held-out split after every epoch, remembers the
+ * best parameters and stops once the validation loss (RMSE, or 1 - AUC for
+ * implicit models) has not improved by at least minDelta for patience
+ * consecutive epochs
+ */
+@Slf4j
+public class EarlyStopping implements TrainingMonitor {
+
+    private final FactorModel model;
+    private final RatingTriples validation;
+    private final ModelEvaluation.NegativeSample negatives; // null = explicit model, RMSE
+    private final int patience;
+    private final double minDelta;
+
+    @Getter
+    private ModelEvaluation best;
+    @Getter
+    private int bestEpoch = -1;
+    private int epochsWithoutImprovement;
+    private double[][] bestParameters;
+
+    public EarlyStopping(FactorModel model, RatingTriples validation, ModelEvaluation.NegativeSample negatives,
+            int patience, double minDelta) {
+        this.model = model;
+        this.validation = validation;
+        this.negatives = negatives;
+        this.patience = patience;
+        this.minDelta = minDelta;
+    }
+
+    @Override
+    public boolean onEpoch(EpochStats stats) {
+        ModelEvaluation evaluation = ModelEvaluation.evaluate(model, validation, negatives);
+        stats.setValidationRmse(evaluation.getRmse());
+        stats.setValidationMae(evaluation.getMae());
+        stats.setValidationAuc(evaluation.getAuc());
+        stats.setValidationRecall(evaluation.getRecall());
+
+        if (best == null || evaluation.loss() < best.loss() - minDelta) {
+            best = evaluation;
+            bestEpoch = stats.getEpoch();
+            epochsWithoutImprovement = 0;
+            saveParameters();
+            return true;
+        }
+
+        epochsWithoutImprovement++;
+        if (epochsWithoutImprovement >= patience) {
+            log.info("Early stopping at epoch {}: validation loss {} has not improved since epoch {} ({})",
+                    stats.getEpoch(), evaluation.loss(), bestEpoch, best.loss());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Roll the model back to the parameters of the best epoch
+     */
+    public void restoreBest() {
+        if (bestParameters == null) {
+            return;
+        }
+        double[][] current = parameters();
+        for (int p = 0; p < current.length; p++) {
+            System.arraycopy(bestParameters[p], 0, current[p], 0, current[p].length);
+        }
+    }
+
+    private void saveParameters() {
+        double[][] current = parameters();
+        if (bestParameters == null) {
+            bestParameters = new double[current.length][];
+            for (int p = 0; p < current.length; p++) {
+                bestParameters[p] = new double[current[p].length];
+            }
+        }
+        for (int p = 0; p < current.length; p++) {
+            System.arraycopy(current[p], 0, bestParameters[p], 0, current[p].length);
+        }
+    }
+
+    private double[][] parameters() {
+        return new double[][] {
+                model.getUserFactors(), model.getItemFactors(), model.getUserBiases(), model.getItemBiases() };
+    }
+}
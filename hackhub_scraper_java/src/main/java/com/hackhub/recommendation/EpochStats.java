@@ -0,0 +1,27 @@
+package com.hackhub.recommendation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-epoch training report
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EpochStats {
+    private int epoch;
+    private double rmse; // on the training split
+    private long wallTimeMs;
+    private double validationRmse;
+    private double validationMae;
+    private double validationAuc; // implicit models only
+    private double validationRecall; // recall@N, implicit models only
+
+    public EpochStats(int epoch, double rmse, long wallTimeMs) {
+        this.epoch = epoch;
+        this.rmse = rmse;
+        this.wallTimeMs = wallTimeMs;
+    }
+}
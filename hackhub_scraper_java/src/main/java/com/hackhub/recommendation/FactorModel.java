@@ -0,0 +1,179 @@
+package com.hackhub.recommendation;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Matrix factorization model parameters stored in dense primitive arrays.
+ * Users and events are mapped to int indices through {@link IdIndex};
+ * factors are row-major (row = index * numFactors).
+ * A model is mutated only by its trainer; once published for serving the
+ * trained arrays are treated as read-only. Online fold-in writes go to a
+ * copy-on-write overlay of whole rows ([factors..., bias]) that takes
+ * precedence over the trained rows; the overlay is discarded together with
+ * the model when a retrained one is published.
+ */
+@Getter
+public class FactorModel {
+
+    private static final DotKernel KERNEL = DotKernel.best();
+
+    private final int numFactors;
+    private final IdIndex userIndex;
+    private final IdIndex itemIndex;
+    private final double[] userFactors;
+    private final double[] itemFactors;
+    private final double[] userBiases;
+    private final double[] itemBiases;
+    @Setter
+    private double globalMean;
+    // Implicit models predict a preference score, not a 1-5 rating
+    @Setter
+    private boolean implicitFeedback;
+    @Setter
+    private ModelMetadata metadata;
+    // Optional approximate top-N index, built before the model is published
+    @Setter
+    private ItemAnnIndex annIndex;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<Long, double[]> userOverrides = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final AtomicReferenceArray<double[]> itemOverrides;
+
+    public FactorModel(int numFactors, IdIndex userIndex, IdIndex itemIndex) {
+        this.numFactors = numFactors;
+        this.userIndex = userIndex;
+        this.itemIndex = itemIndex;
+        this.userFactors = new double[userIndex.size() * numFactors];
+        this.itemFactors = new double[itemIndex.size() * numFactors];
+        this.userBiases = new double[userIndex.size()];
+        this.itemBiases = new double[itemIndex.size()];
+        this.itemOverrides = new AtomicReferenceArray<>(itemIndex.size());
+    }
+
+    /**
+     * Fill factors with small gaussian noise, biases stay at zero
+     */
+    public void randomize(Random random) {
+        for (int i = 0; i < userFactors.length; i++) {
+            userFactors[i] = random.nextGaussian() * 0.01;
+        }
+        for (int i = 0; i < itemFactors.length; i++) {
+            itemFactors[i] = random.nextGaussian() * 0.01;
+        }
+    }
+
+    /**
+     * Raw (unclamped) prediction for a user/item index pair
+     */
+    public double predict(int user, int item) {
+        return globalMean + userBiases[user] + itemBiases[item]
+                + KERNEL.dot(userFactors, user * numFactors, itemFactors, item * numFactors, numFactors);
+    }
+
+    /**
+     * Raw prediction by entity ids, including online updates. Unknown
+     * users/items contribute no bias or factors.
+     */
+    public double predict(long userId, long itemId) {
+        double[] user = userVector(userId);
+        int item = itemIndex.indexOf(itemId);
+
+        double prediction = globalMean;
+        if (user != null) {
+            prediction += user[numFactors];
+        }
+        if (item >= 0) {
+            prediction += itemScore(user, item);
+        }
+        return prediction;
+    }
+
+    /**
+     * b_i + x . y_i for a [factors..., bias] user vector (null = no factors),
+     * using the item's online row if it has one
+     */
+    public double itemScore(double[] userVector, int item) {
+        double[] row = itemOverrides.get(item);
+        if (userVector == null) {
+            return row != null ? row[numFactors] : itemBiases[item];
+        }
+        if (row != null) {
+            return row[numFactors] + KERNEL.dot(userVector, 0, row, 0, numFactors);
+        }
+        return itemBiases[item] + KERNEL.dot(userVector, 0, itemFactors, item * numFactors, numFactors);
+    }
+
+    /**
+     * Current [factors..., bias] of a user: the online row if present, else a
+     * copy of the trained row, else null for a user unknown to the model
+     */
+    public double[] userVector(long userId) {
+        double[] override = userOverrides.get(userId);
+        if (override != null) {
+            return override;
+        }
+        int user = userIndex.indexOf(userId);
+        if (user < 0) {
+            return null;
+        }
+        double[] vector = new double[numFactors + 1];
+        System.arraycopy(userFactors, user * numFactors, vector, 0, numFactors);
+        vector[numFactors] = userBiases[user];
+        return vector;
+    }
+
+    /**
+     * Current [factors..., bias] of an item (online row or trained row)
+     */
+    public double[] itemVector(int item) {
+        double[] override = itemOverrides.get(item);
+        if (override != null) {
+            return override;
+        }
+        double[] vector = new double[numFactors + 1];
+        System.arraycopy(itemFactors, item * numFactors, vector, 0, numFactors);
+        vector[numFactors] = itemBiases[item];
+        return vector;
+    }
+
+    /**
+     * Online item row, or null if the item still uses its trained row
+     */
+    public double[] itemOverride(int item) {
+        return itemOverrides.get(item);
+    }
+
+    /**
+     * Publish an updated user row; the array must not be modified afterwards
+     */
+    public void putUserVector(long userId, double[] vector) {
+        userOverrides.put(userId, vector);
+    }
+
+    /**
+     * Publish an updated item row; the array must not be modified afterwards
+     */
+    public void putItemVector(int item, double[] vector) {
+        itemOverrides.set(item, vector);
+    }
+
+    public int getNumOnlineUsers() {
+        return userOverrides.size();
+    }
+
+    public int getNumUsers() {
+        return userIndex.size();
+    }
+
+    public int getNumItems() {
+        return itemIndex.size();
+    }
+}
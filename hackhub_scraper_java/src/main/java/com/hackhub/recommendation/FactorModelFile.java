@@ -0,0 +1,293 @@
+package com.hackhub.recommendation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary file format for {@link FactorModel}.
+ *
+ * Layout (little-endian, sections 8-byte aligned):
+ * header: magic, format version, flags, numFactors, numUsers, numItems,
+ * globalMean, trainedAt, dataWatermarkId, rmse, mae,
+ * numRatings, algorithm (length + UTF-8);
+ * body: user ids, item ids, user biases, item biases, user factors, item
+ * factors; trailer: CRC32 of everything before it.
+ *
+ * Files are written to a temp file and moved into place, and read through a
+ * memory-mapped channel so loading is a bulk copy with no parsing.
+ */
+public final class FactorModelFile {
+
+    public static final int MAGIC = 0x46434848; // "HHCF"
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int FLAG_IMPLICIT = 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private FactorModelFile() {
+    }
+
+    /**
+     * Write model atomically to path
+     */
+    public static void write(FactorModel model, Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+
+        ModelMetadata metadata = model.getMetadata() != null ? model.getMetadata() : new ModelMetadata();
+        byte[] algorithm = (metadata.getAlgorithm() != null ? metadata.getAlgorithm() : "")
+                .getBytes(StandardCharsets.UTF_8);
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChecksumWriter out = new ChecksumWriter(channel);
+
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putInt(model.isImplicitFeedback() ? FLAG_IMPLICIT : 0);
+            out.putInt(model.getNumFactors());
+            out.putInt(model.getNumUsers());
+            out.putInt(model.getNumItems());
+            out.putDouble(model.getGlobalMean());
+            out.putLong(metadata.getTrainedAt());
+            out.putLong(metadata.getDataWatermarkId());
+            out.putDouble(metadata.getRmse());
+            out.putDouble(metadata.getMae());
+            out.putInt(metadata.getNumRatings());
+            out.putInt(algorithm.length);
+            out.putBytes(algorithm);
+            out.align();
+
+            out.putLongs(model.getUserIndex().toArray());
+            out.putLongs(model.getItemIndex().toArray());
+            out.putDoubles(model.getUserBiases());
+            out.putDoubles(model.getItemBiases());
+            out.putDoubles(model.getUserFactors());
+            out.putDoubles(model.getItemFactors());
+
+            out.finish();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Memory-map and validate a model file
+     *
+     * @throws IOException if the file is truncated, corrupt or of an unknown
+     *                     format version
+     */
+    public static FactorModel read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < 64 || fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Invalid model file size " + fileSize + ": " + path);
+            }
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            int bodyEnd = (int) fileSize - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(mapped.duplicate().limit(bodyEnd));
+            if (crc.getValue() != mapped.getLong(bodyEnd)) {
+                throw new IOException("Model file checksum mismatch: " + path);
+            }
+
+            ByteBuffer in = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a model file: " + path);
+            }
+            int version = in.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported model format version " + version + ": " + path);
+            }
+
+            int flags = in.getInt();
+            int numFactors = in.getInt();
+            int numUsers = in.getInt();
+            int numItems = in.getInt();
+            double globalMean = in.getDouble();
+
+            ModelMetadata metadata = new ModelMetadata();
+            metadata.setTrainedAt(in.getLong());
+            metadata.setDataWatermarkId(in.getLong());
+            metadata.setRmse(in.getDouble());
+            metadata.setMae(in.getDouble());
+            metadata.setNumRatings(in.getInt());
+            byte[] algorithm = new byte[in.getInt()];
+            in.get(algorithm);
+            metadata.setAlgorithm(new String(algorithm, StandardCharsets.UTF_8));
+            align(in);
+
+            long expected = in.position()
+                    + ((long) numUsers + numItems) * Long.BYTES
+                    + ((long) numUsers + numItems) * (numFactors + 1) * Double.BYTES;
+            if (numFactors <= 0 || numUsers < 0 || numItems < 0 || expected != bodyEnd) {
+                throw new IOException("Model file dimensions do not match its size: " + path);
+            }
+
+            IdIndex userIndex = IdIndex.of(getLongs(in, numUsers));
+            IdIndex itemIndex = IdIndex.of(getLongs(in, numItems));
+
+            FactorModel model = new FactorModel(numFactors, userIndex, itemIndex);
+            model.setGlobalMean(globalMean);
+            model.setImplicitFeedback((flags & FLAG_IMPLICIT) != 0);
+            model.setMetadata(metadata);
+            getDoubles(in, model.getUserBiases());
+            getDoubles(in, model.getItemBiases());
+            getDoubles(in, model.getUserFactors());
+            getDoubles(in, model.getItemFactors());
+            return model;
+        }
+    }
+
+    /**
+     * Read only the header's metadata, without validating the body
+     */
+    public static ModelMetadata readMetadata(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer in = ByteBuffer.allocate((int) Math.min(channel.size(), 4096)).order(ByteOrder.LITTLE_ENDIAN);
+            while (in.hasRemaining() && channel.read(in) >= 0) {
+                // fill the header buffer
+            }
+            in.flip();
+            if (in.remaining() < 64 || in.getInt() != MAGIC) {
+                throw new IOException("Not a readable model file: " + path);
+            }
+            int version = in.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported model format version " + version + ": " + path);
+            }
+            in.position(in.position() + 4 * Integer.BYTES + Double.BYTES); // flags, dimensions, mean
+
+            ModelMetadata metadata = new ModelMetadata();
+            metadata.setTrainedAt(in.getLong());
+            metadata.setDataWatermarkId(in.getLong());
+            metadata.setRmse(in.getDouble());
+            metadata.setMae(in.getDouble());
+            metadata.setNumRatings(in.getInt());
+            int length = in.getInt();
+            if (length < 0 || length > in.remaining()) {
+                throw new IOException("Corrupt model file header: " + path);
+            }
+            byte[] algorithm = new byte[length];
+            in.get(algorithm);
+            metadata.setAlgorithm(new String(algorithm, StandardCharsets.UTF_8));
+            return metadata;
+        }
+    }
+
+    private static long[] getLongs(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + count * Long.BYTES);
+        return values;
+    }
+
+    private static void getDoubles(ByteBuffer in, double[] target) {
+        in.asDoubleBuffer().get(target);
+        in.position(in.position() + target.length * Double.BYTES);
+    }
+
+    private static void align(ByteBuffer in) {
+        int rem = in.position() % 8;
+        if (rem != 0) {
+            in.position(in.position() + 8 - rem);
+        }
+    }
+
+    /**
+     * Buffered channel writer that keeps a running CRC32 of all bytes written
+     */
+    private static class ChecksumWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private long written;
+
+        private ChecksumWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        private void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        private void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        private void putBytes(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                ensure(1);
+                buffer.put(b);
+            }
+        }
+
+        private void putLongs(long[] values) throws IOException {
+            for (long value : values) {
+                putLong(value);
+            }
+        }
+
+        private void putDoubles(double[] values) throws IOException {
+            for (double value : values) {
+                putDouble(value);
+            }
+        }
+
+        private void align() throws IOException {
+            while ((written + buffer.position()) % 8 != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        private void finish() throws IOException {
+            flush();
+            ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putLong(crc.getValue()).flip();
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            written += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
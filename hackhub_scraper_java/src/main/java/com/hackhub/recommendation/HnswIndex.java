@@ -0,0 +1,394 @@
+package com.hackhub.recommendation;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov and Yashunin) for
+ * approximate nearest neighbour search under squared L2 distance.
+ * Vectors are stored row-major in one float array. The graph is built once
+ * on a single thread; after that it is read-only and safe for concurrent
+ * searches.
+ */
+public class HnswIndex {
+
+    private final int dim;
+    private final int size;
+    private final float[] vectors;
+    private final int maxLinks;
+    private final int maxLinksLayer0;
+    private final int efConstruction;
+
+    // links[node][layer] = neighbour ids, linkCounts[node][layer] = used slots
+    private final int[][][] links;
+    private final int[][] linkCounts;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    // Visited sets reused across searches, owned by this index so they go
+    // away with it; searches beyond the pool size allocate their own
+    private final ArrayBlockingQueue<VisitedSet> visitedPool =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    private HnswIndex(float[] vectors, int dim, int maxLinks, int efConstruction) {
+        this.dim = dim;
+        this.size = vectors.length / dim;
+        this.vectors = vectors;
+        this.maxLinks = maxLinks;
+        this.maxLinksLayer0 = maxLinks * 2;
+        this.efConstruction = Math.max(efConstruction, maxLinks);
+        this.links = new int[size][][];
+        this.linkCounts = new int[size][];
+    }
+
+    /**
+     * Build an index over vectors (row-major, dim floats per node)
+     *
+     * @param maxLinks       neighbours kept per node on upper layers (M)
+     * @param efConstruction beam width while inserting
+     */
+    public static HnswIndex build(float[] vectors, int dim, int maxLinks, int efConstruction, long seed) {
+        HnswIndex index = new HnswIndex(vectors, dim, maxLinks, efConstruction);
+        Random random = new Random(seed);
+        double levelFactor = 1.0 / Math.log(maxLinks);
+        for (int node = 0; node < index.size; node++) {
+            int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelFactor);
+            index.insert(node, level);
+        }
+        return index;
+    }
+
+    /**
+     * Approximate k nearest nodes to query, closest first
+     *
+     * @param ef search beam width; higher trades latency for recall
+     */
+    public int[] search(float[] query, int k, int ef) {
+        if (entryPoint < 0 || k <= 0) {
+            return new int[0];
+        }
+
+        int current = entryPoint;
+        float currentDist = distance(query, current);
+        for (int layer = maxLevel; layer > 0; layer--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] neighbours = links[current][layer];
+                int count = linkCounts[current][layer];
+                for (int n = 0; n < count; n++) {
+                    float d = distance(query, neighbours[n]);
+                    if (d < currentDist) {
+                        currentDist = d;
+                        current = neighbours[n];
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        NodeHeap results = searchLayer(query, current, currentDist, Math.max(ef, k), 0);
+        while (results.size() > k) {
+            results.poll();
+        }
+        int[] nearest = new int[results.size()];
+        for (int n = nearest.length - 1; n >= 0; n--) {
+            nearest[n] = results.poll();
+        }
+        return nearest;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void insert(int node, int level) {
+        links[node] = new int[level + 1][];
+        linkCounts[node] = new int[level + 1];
+        for (int layer = 0; layer <= level; layer++) {
+            links[node][layer] = new int[(layer == 0 ? maxLinksLayer0 : maxLinks) + 1];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        float[] query = Arrays.copyOfRange(vectors, node * dim, (node + 1) * dim);
+        int current = entryPoint;
+        float currentDist = distance(query, current);
+
+        // Greedy descent through the layers above the new node's level
+        for (int layer = maxLevel; layer > level; layer--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] neighbours = links[current][layer];
+                int count = linkCounts[current][layer];
+                for (int n = 0; n < count; n++) {
+                    float d = distance(query, neighbours[n]);
+                    if (d < currentDist) {
+                        currentDist = d;
+                        current = neighbours[n];
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            NodeHeap candidates = searchLayer(query, current, currentDist, efConstruction, layer);
+            int limit = layer == 0 ? maxLinksLayer0 : maxLinks;
+
+            int[] selected = selectNeighbours(candidates, limit);
+            System.arraycopy(selected, 0, links[node][layer], 0, selected.length);
+            linkCounts[node][layer] = selected.length;
+
+            for (int neighbour : selected) {
+                link(neighbour, node, layer, limit);
+            }
+
+            // Continue the descent from the closest node found on this layer
+            current = selected.length > 0 ? selected[0] : current;
+            currentDist = distance(query, current);
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Add a reverse link, pruning the neighbour's list if it overflows
+     */
+    private void link(int from, int to, int layer, int limit) {
+        int[] neighbours = links[from][layer];
+        int count = linkCounts[from][layer];
+        neighbours[count++] = to;
+        if (count <= limit) {
+            linkCounts[from][layer] = count;
+            return;
+        }
+
+        NodeHeap candidates = new NodeHeap(count, true);
+        for (int n = 0; n < count; n++) {
+            candidates.push(distance(from, neighbours[n]), neighbours[n]);
+        }
+        int[] kept = selectNeighbours(candidates, limit);
+        System.arraycopy(kept, 0, neighbours, 0, kept.length);
+        linkCounts[from][layer] = kept.length;
+    }
+
+    /**
+     * Neighbour selection heuristic: walk candidates closest first and keep a
+     * candidate only if it is closer to the base than to every node already
+     * kept. This keeps links spread across clusters.
+     * The heap is drained (it must be a max-heap of candidates).
+     */
+    private int[] selectNeighbours(NodeHeap candidates, int limit) {
+        int count = candidates.size();
+        int[] ordered = new int[count];
+        float[] distances = new float[count];
+        for (int n = count - 1; n >= 0; n--) {
+            distances[n] = candidates.peekKey();
+            ordered[n] = candidates.poll();
+        }
+
+        int[] selected = new int[Math.min(limit, count)];
+        int kept = 0;
+        for (int n = 0; n < count && kept < selected.length; n++) {
+            boolean keep = true;
+            for (int s = 0; s < kept; s++) {
+                if (distance(ordered[n], selected[s]) < distances[n]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[kept++] = ordered[n];
+            }
+        }
+        return kept == selected.length ? selected : Arrays.copyOf(selected, kept);
+    }
+
+    /**
+     * Beam search on one layer, returns a max-heap of the ef closest nodes
+     */
+    private NodeHeap searchLayer(float[] query, int entry, float entryDist, int ef, int layer) {
+        VisitedSet seen = visitedPool.poll();
+        if (seen == null) {
+            seen = new VisitedSet(size);
+        }
+        try {
+            return searchLayer(query, entry, entryDist, ef, layer, seen);
+        } finally {
+            visitedPool.offer(seen);
+        }
+    }
+
+    private NodeHeap searchLayer(float[] query, int entry, float entryDist, int ef, int layer, VisitedSet seen) {
+        seen.clear();
+        seen.add(entry);
+
+        NodeHeap candidates = new NodeHeap(ef * 2, false);
+        NodeHeap results = new NodeHeap(ef + 1, true);
+        candidates.push(entryDist, entry);
+        results.push(entryDist, entry);
+
+        while (candidates.size() > 0) {
+            float candidateDist = candidates.peekKey();
+            if (candidateDist > results.peekKey() && results.size() >= ef) {
+                break;
+            }
+            int candidate = candidates.poll();
+            if (links[candidate].length <= layer) {
+                continue;
+            }
+
+            int[] neighbours = links[candidate][layer];
+            int count = linkCounts[candidate][layer];
+            for (int n = 0; n < count; n++) {
+                int neighbour = neighbours[n];
+                if (!seen.add(neighbour)) {
+                    continue;
+                }
+                float d = distance(query, neighbour);
+                if (results.size() < ef || d < results.peekKey()) {
+                    candidates.push(d, neighbour);
+                    results.push(d, neighbour);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private float distance(float[] query, int node) {
+        int off = node * dim;
+        float sum = 0f;
+        for (int d = 0; d < dim; d++) {
+            float diff = query[d] - vectors[off + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private float distance(int a, int b) {
+        int offA = a * dim;
+        int offB = b * dim;
+        float sum = 0f;
+        for (int d = 0; d < dim; d++) {
+            float diff = vectors[offA + d] - vectors[offB + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Binary heap of (distance, node) pairs on primitive arrays
+     */
+    private static class NodeHeap {
+        private float[] keys;
+        private int[] nodes;
+        private int size;
+        private final boolean max;
+
+        private NodeHeap(int capacity, boolean max) {
+            this.keys = new float[Math.max(capacity, 4)];
+            this.nodes = new int[Math.max(capacity, 4)];
+            this.max = max;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private float peekKey() {
+            return keys[0];
+        }
+
+        private void push(float key, int node) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(key, keys[parent])) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        private int poll() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                float key = keys[size];
+                int node = nodes[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && before(keys[child + 1], keys[child])) {
+                        child++;
+                    }
+                    if (!before(keys[child], key)) {
+                        break;
+                    }
+                    keys[i] = keys[child];
+                    nodes[i] = nodes[child];
+                    i = child;
+                }
+                keys[i] = key;
+                nodes[i] = node;
+            }
+            return top;
+        }
+
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+
+    /**
+     * Generation-stamped visited marks, reused across searches; used by one
+     * search at a time
+     */
+    private static class VisitedSet {
+        private final int[] marks;
+        private int generation;
+
+        private VisitedSet(int size) {
+            this.marks = new int[size];
+        }
+
+        private void clear() {
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        private boolean add(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.hackhub.recommendation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Grid search over CF hyperparameters. The rating data is loaded and split
+ * once and shared read-only by all trials; trials run single-threaded on a
+ * bounded pool and are ranked by validation loss - RMSE for explicit
+ * models, 1 - AUC for implicit ones - with early stopping, so the iteration
+ * count is only an upper bound.
+ */
+@Service
+@Slf4j
+public class HyperparameterSearchService {
+
+    @Autowired
+    private LibRecDataExporter dataExporter;
+
+    @Autowired
+    private CollaborativeFilteringService collaborativeFilteringService;
+
+    @Value("${librec.search.factors:10,20,40}")
+    private int[] factorGrid;
+
+    // SGD only
+    @Value("${librec.search.learnRates:0.005,0.01,0.02}")
+    private double[] learnRateGrid;
+
+    // SGD regularization or ALS lambda
+    @Value("${librec.search.regularizations:0.01,0.05,0.1}")
+    private double[] regularizationGrid;
+
+    // ALS only
+    @Value("${librec.search.alphas:1,10,40}")
+    private double[] alphaGrid;
+
+    // Concurrent trials; 0 = one per available core
+    @Value("${librec.search.parallelism:0}")
+    private int parallelism;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Train every candidate configuration and rank them on the held-out split
+     *
+     * @param promote         refit the best configuration on all ratings,
+     *                        publish it and keep its hyperparameters
+     * @param cancelRequested checked after every trial and by running trials
+     *                        after every epoch
+     * @param progress        told the trial count at the start and after
+     *                        every trial
+     * @throws IllegalStateException if a search is already running
+     * @throws CancellationException if cancelRequested became true; nothing
+     *                               is published
+     * @throws IOException           if the interaction snapshot cannot be read
+     */
+    public SearchResult search(boolean promote, BooleanSupplier cancelRequested, SearchMonitor progress)
+            throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A hyperparameter search is already running");
+        }
+        try {
+            return runSearch(promote, cancelRequested, progress);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private SearchResult runSearch(boolean promote, BooleanSupplier cancelRequested, SearchMonitor progress)
+            throws IOException {
+        long startTime = System.currentTimeMillis();
+        // Tune on current data; a promoted model is stamped with this watermark
+        InteractionSnapshotSet snapshot = dataExporter.refreshSnapshot();
+        SparseRatingMatrix matrix = dataExporter.exportRatingMatrix(snapshot);
+        if (matrix.getNumRatings() == 0) {
+            log.warn("No training data available for hyperparameter search");
+            return new SearchResult(Collections.emptyList(), null, false, 0);
+        }
+
+        RatingTriples ratings = matrix.toTriples();
+        RatingTriples.Split split = collaborativeFilteringService.splitForTraining(ratings);
+        ModelEvaluation.NegativeSample negatives = collaborativeFilteringService.sampleNegatives(split);
+        List<Hyperparameters> grid = buildGrid();
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        threads = Math.min(threads, grid.size());
+        log.info("Hyperparameter search: {} candidates on {} threads, {} training / {} validation ratings",
+                grid.size(), threads, split.getTrain().getSize(), split.getValidation().getSize());
+
+        // Trials stop at their next epoch once the search is cancelled or
+        // their worker is interrupted by shutdownNow
+        TrainingMonitor stopOnCancel = stats ->
+                !cancelRequested.getAsBoolean() && !Thread.currentThread().isInterrupted();
+
+        progress.onTrials(0, grid.size());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<TrialResult> trials = new ArrayList<>(grid.size());
+        CollaborativeFilteringService.Candidate best = null;
+        try {
+            CompletionService<CollaborativeFilteringService.Candidate> completion =
+                    new ExecutorCompletionService<>(pool);
+            for (Hyperparameters params : grid) {
+                completion.submit(() -> collaborativeFilteringService.trainCandidate(
+                        split, negatives, params, 1, stopOnCancel));
+            }
+
+            for (int n = 0; n < grid.size(); n++) {
+                if (cancelRequested.getAsBoolean()) {
+                    throw new CancellationException("Hyperparameter search cancelled after " + n + " trials");
+                }
+                try {
+                    CollaborativeFilteringService.Candidate candidate = completion.take().get();
+                    trials.add(toTrial(candidate));
+                    log.info("Trial {}/{}: {} -> validation loss {}", n + 1, grid.size(),
+                            candidate.getHyperparameters(), candidate.getEvaluation().loss());
+                    // Keep only the best model alive so memory stays bounded by the pool size
+                    if (best == null || candidate.getEvaluation().loss() < best.getEvaluation().loss()) {
+                        best = candidate;
+                    }
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof CancellationException)) {
+                        log.error("Hyperparameter trial failed", e.getCause());
+                    }
+                }
+                progress.onTrials(n + 1, grid.size());
+            }
+            if (cancelRequested.getAsBoolean()) {
+                throw new CancellationException("Hyperparameter search cancelled after " + grid.size() + " trials");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Hyperparameter search interrupted", e);
+        } finally {
+            stopTrials(pool);
+        }
+
+        trials.sort(Comparator.comparingDouble(TrialResult::getValidationLoss));
+        boolean promoted = false;
+        if (promote && best != null) {
+            collaborativeFilteringService.promote(best, ratings, snapshot.getMaxId());
+            promoted = true;
+        }
+
+        long searchTime = System.currentTimeMillis() - startTime;
+        log.info("Hyperparameter search finished in {}ms, best: {}", searchTime,
+                trials.isEmpty() ? null : trials.get(0));
+        return new SearchResult(trials, trials.isEmpty() ? null : trials.get(0), promoted, searchTime);
+    }
+
+    /**
+     * Drop queued trials, interrupt running ones and wait until they have
+     * returned, so no trial outlives the search and the lease it ran under
+     */
+    private static void stopTrials(ExecutorService pool) {
+        pool.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+                log.warn("Still waiting for hyperparameter trials to stop");
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Cartesian product of the grids relevant to the configured algorithm
+     */
+    private List<Hyperparameters> buildGrid() {
+        Hyperparameters base = collaborativeFilteringService.currentHyperparameters();
+        boolean als = collaborativeFilteringService.isAls();
+        double[] secondGrid = als ? alphaGrid : learnRateGrid;
+
+        List<Hyperparameters> grid = new ArrayList<>();
+        for (int factors : factorGrid) {
+            for (double regularization : regularizationGrid) {
+                for (double value : secondGrid) {
+                    grid.add(als
+                            ? new Hyperparameters(factors, base.getNumIterations(), 0, regularization, value)
+                            : new Hyperparameters(factors, base.getNumIterations(), value, regularization, 0));
+                }
+            }
+        }
+        return grid;
+    }
+
+    private TrialResult toTrial(CollaborativeFilteringService.Candidate candidate) {
+        long trainingTime = candidate.getEpochs().stream().mapToLong(EpochStats::getWallTimeMs).sum();
+        ModelEvaluation evaluation = candidate.getEvaluation();
+        return new TrialResult(candidate.getHyperparameters(),
+                evaluation.loss(),
+                evaluation.getRmse(),
+                evaluation.getMae(),
+                evaluation.getAuc(),
+                evaluation.getRecall(),
+                candidate.getEpochs().size(),
+                candidate.getBestEpoch(),
+                trainingTime);
+    }
+
+    /**
+     * Observes a search: trials finished (trained or failed) out of the grid
+     */
+    @FunctionalInterface
+    public interface SearchMonitor {
+        void onTrials(int completed, int total);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class TrialResult {
+        private Hyperparameters hyperparameters;
+        private double validationLoss; // ranking key: RMSE, or 1 - AUC for implicit models
+        private double validationRmse;
+        private double validationMae;
+        private double validationAuc;
+        private double validationRecall;
+        private int epochsRun;
+        private int bestEpoch;
+        private long trainingTimeMs;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SearchResult {
+        private List<TrialResult> trials; // best first
+        private TrialResult best;
+        private boolean promoted;
+        private long searchTimeMs;
+    }
+}
@@ -0,0 +1,20 @@
+package com.hackhub.recommendation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One training configuration. For ALS, regularization is lambda and
+ * learnRate is unused; for SGD, alpha is unused.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Hyperparameters {
+    private int numFactors;
+    private int numIterations;
+    private double learnRate;
+    private double regularization;
+    private double alpha;
+}
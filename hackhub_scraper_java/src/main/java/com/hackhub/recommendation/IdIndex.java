@@ -0,0 +1,122 @@
+package com.hackhub.recommendation;
+
+import java.util.Arrays;
+
+/**
+ * Dense dictionary mapping entity ids (users, events) to contiguous int
+ * indices, so model parameters can be stored in flat primitive arrays.
+ * Backed by an open-addressing table, no boxing on lookup.
+ * Not thread-safe while being built; safe for concurrent reads afterwards.
+ */
+public class IdIndex {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] ids;
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public IdIndex() {
+        this(16);
+    }
+
+    public IdIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        ids = new long[Math.max(4, expectedSize)];
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Build an index whose i-th entry is ids[i]
+     */
+    public static IdIndex of(long[] ids) {
+        IdIndex index = new IdIndex(ids.length);
+        for (long id : ids) {
+            index.add(id);
+        }
+        return index;
+    }
+
+    /**
+     * Add id if absent and return its dense index
+     */
+    public int add(long id) {
+        if (id == EMPTY) {
+            throw new IllegalArgumentException("Unsupported id: " + id);
+        }
+        int mask = keys.length - 1;
+        int slot = mix(id) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == id) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        int index = size++;
+        ids[index] = id;
+        keys[slot] = id;
+        values[slot] = index;
+
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return index;
+    }
+
+    /**
+     * Dense index of id, or -1 if unknown
+     */
+    public int indexOf(long id) {
+        int mask = keys.length - 1;
+        int slot = mix(id) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == id) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public long idAt(int index) {
+        return ids[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copy of the ids in index order
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    private void rehash(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        int mask = capacity - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = mix(ids[i]) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = ids[i];
+            values[slot] = i;
+        }
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
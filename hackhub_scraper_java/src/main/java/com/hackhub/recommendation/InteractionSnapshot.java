@@ -0,0 +1,306 @@
+package com.hackhub.recommendation;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Columnar binary snapshot of the interaction table, already reduced to
+ * implicit ratings.
+ *
+ * Layout (little-endian): header of magic, format version, row count,
+ * createdAt, max interaction id and one CRC32 per column; then the columns
+ * id, userId, eventId, timestamp (epoch seconds UTC) as longs and rating as
+ * floats, each rowCount entries long, rows in interaction id order.
+ *
+ * Written through one temp file per column (rows can be streamed without
+ * knowing the count up front), then concatenated and moved into place.
+ * Opened by memory-mapping the file; columns are read in place.
+ */
+public class InteractionSnapshot {
+
+    public static final int MAGIC = 0x53494848; // "HHIS"
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int COLUMNS = 5;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + COLUMNS * 8;
+    private static final int ROW_SIZE = 4 * Long.BYTES + Float.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 1 << 18;
+
+    @Getter
+    private final int size;
+    @Getter
+    private final long createdAt;
+    @Getter
+    private final long maxId;
+
+    private final LongBuffer ids;
+    private final LongBuffer userIds;
+    private final LongBuffer eventIds;
+    private final LongBuffer timestamps;
+    private final FloatBuffer ratings;
+
+    private InteractionSnapshot(int size, long createdAt, long maxId, LongBuffer ids, LongBuffer userIds,
+            LongBuffer eventIds, LongBuffer timestamps, FloatBuffer ratings) {
+        this.size = size;
+        this.createdAt = createdAt;
+        this.maxId = maxId;
+        this.ids = ids;
+        this.userIds = userIds;
+        this.eventIds = eventIds;
+        this.timestamps = timestamps;
+        this.ratings = ratings;
+    }
+
+    public long id(int row) {
+        return ids.get(row);
+    }
+
+    public long userId(int row) {
+        return userIds.get(row);
+    }
+
+    public long eventId(int row) {
+        return eventIds.get(row);
+    }
+
+    public long timestamp(int row) {
+        return timestamps.get(row);
+    }
+
+    public float rating(int row) {
+        return ratings.get(row);
+    }
+
+    /**
+     * Row of an interaction id (binary search, rows are in id order), or -1
+     */
+    public int find(long id) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midId = ids.get(mid);
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Memory-map and validate a snapshot file
+     *
+     * @throws IOException if the file is truncated, corrupt or of an unknown
+     *                     format version
+     */
+    public static InteractionSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot file size " + fileSize + ": " + path);
+            }
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IOException("Not an interaction snapshot: " + path);
+            }
+            int version = mapped.getInt(4);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format version " + version + ": " + path);
+            }
+            long rows = mapped.getLong(8);
+            if (rows < 0 || HEADER_SIZE + rows * ROW_SIZE != fileSize) {
+                throw new IOException("Snapshot row count does not match its size: " + path);
+            }
+            int size = (int) rows;
+            long createdAt = mapped.getLong(16);
+            long maxId = mapped.getLong(24);
+
+            int offset = HEADER_SIZE;
+            ByteBuffer[] columns = new ByteBuffer[COLUMNS];
+            for (int c = 0; c < COLUMNS; c++) {
+                int width = c < COLUMNS - 1 ? Long.BYTES : Float.BYTES;
+                columns[c] = mapped.slice(offset, size * width).order(ByteOrder.LITTLE_ENDIAN);
+                offset += size * width;
+
+                CRC32 crc = new CRC32();
+                crc.update(columns[c].duplicate());
+                if (crc.getValue() != mapped.getLong(32 + c * 8)) {
+                    throw new IOException("Snapshot column " + c + " checksum mismatch: " + path);
+                }
+            }
+
+            return new InteractionSnapshot(size, createdAt, maxId,
+                    columns[0].asLongBuffer(), columns[1].asLongBuffer(), columns[2].asLongBuffer(),
+                    columns[3].asLongBuffer(), columns[4].asFloatBuffer());
+        }
+    }
+
+    /**
+     * Start writing a snapshot to path; nothing is visible there until
+     * {@link Writer#commit()}
+     */
+    public static Writer writer(Path path) throws IOException {
+        return new Writer(path);
+    }
+
+    /**
+     * Appends rows to per-column temp files
+     */
+    public static class Writer implements Closeable {
+        private final Path path;
+        private final Path dir;
+        private final Column[] columns = new Column[COLUMNS];
+        private long rows;
+        private long maxId = Long.MIN_VALUE;
+        private boolean committed;
+
+        private Writer(Path path) throws IOException {
+            this.path = path;
+            this.dir = path.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            try {
+                for (int c = 0; c < COLUMNS; c++) {
+                    columns[c] = new Column(Files.createTempFile(dir, path.getFileName() + ".col" + c, ".tmp"));
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        public void append(long id, long userId, long eventId, float rating, long timestamp) throws IOException {
+            columns[0].putLong(id);
+            columns[1].putLong(userId);
+            columns[2].putLong(eventId);
+            columns[3].putLong(timestamp);
+            columns[4].putFloat(rating);
+            maxId = Math.max(maxId, id);
+            rows++;
+        }
+
+        public long getRowCount() {
+            return rows;
+        }
+
+        /**
+         * Concatenate header and columns and atomically replace the target
+         */
+        public void commit() throws IOException {
+            if (HEADER_SIZE + rows * ROW_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + rows + " rows");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putLong(rows);
+            header.putLong(System.currentTimeMillis());
+            header.putLong(rows == 0 ? 0 : maxId);
+            for (Column column : columns) {
+                column.flush();
+                header.putLong(column.crc.getValue());
+            }
+            header.flip();
+
+            Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                for (Column column : columns) {
+                    long position = 0;
+                    long length = column.channel.size();
+                    while (position < length) {
+                        position += column.channel.transferTo(position, length - position, out);
+                    }
+                }
+                out.force(true);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            close();
+        }
+
+        /**
+         * Release and delete the column temp files (discards the snapshot if
+         * it was not committed)
+         */
+        @Override
+        public void close() throws IOException {
+            for (Column column : columns) {
+                if (column != null) {
+                    column.channel.close();
+                    Files.deleteIfExists(column.file);
+                }
+            }
+            if (!committed) {
+                rows = 0;
+            }
+        }
+    }
+
+    /**
+     * One buffered column temp file with a running CRC32
+     */
+    private static class Column {
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+
+        private Column(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private void putLong(long value) throws IOException {
+            if (buffer.remaining() < Long.BYTES) {
+                flush();
+            }
+            buffer.putLong(value);
+        }
+
+        private void putFloat(float value) throws IOException {
+            if (buffer.remaining() < Float.BYTES) {
+                flush();
+            }
+            buffer.putFloat(value);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
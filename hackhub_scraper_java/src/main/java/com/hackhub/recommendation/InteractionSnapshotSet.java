@@ -0,0 +1,128 @@
+package com.hackhub.recommendation;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Logical interaction snapshot made of a base file followed by delta
+ * segments. An interaction id present in a later segment supersedes its
+ * rows in earlier ones, so updated interactions are read once, in their
+ * latest state. Only the ids of delta segments are hashed; the base is
+ * never indexed.
+ */
+public class InteractionSnapshotSet {
+
+    private final List<InteractionSnapshot> segments;
+    private final BitSet[] superseded;
+    @Getter
+    private final int size;
+
+    private InteractionSnapshotSet(List<InteractionSnapshot> segments, BitSet[] superseded, int size) {
+        this.segments = segments;
+        this.superseded = superseded;
+        this.size = size;
+    }
+
+    /**
+     * @param segments base first, then deltas in the order they were written
+     */
+    public static InteractionSnapshotSet of(List<InteractionSnapshot> segments) {
+        BitSet[] superseded = new BitSet[segments.size()];
+        IdIndex newer = new IdIndex();
+        int size = 0;
+        for (int s = segments.size() - 1; s >= 0; s--) {
+            InteractionSnapshot segment = segments.get(s);
+            superseded[s] = new BitSet();
+            for (int row = segment.getSize() - 1; row >= 0; row--) {
+                long id = segment.id(row);
+                if (newer.indexOf(id) >= 0) {
+                    superseded[s].set(row);
+                } else {
+                    size++;
+                    if (s > 0) {
+                        newer.add(id);
+                    }
+                }
+            }
+        }
+        return new InteractionSnapshotSet(List.copyOf(segments), superseded, size);
+    }
+
+    public int getNumSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Highest interaction id in the snapshot (every segment is in id
+     * order), 0 if it is empty
+     */
+    public long getMaxId() {
+        long maxId = 0;
+        for (InteractionSnapshot segment : segments) {
+            maxId = Math.max(maxId, segment.getMaxId());
+        }
+        return maxId;
+    }
+
+    /**
+     * Whether the live row of an interaction id has this timestamp and
+     * rating, i.e. re-exporting it would change nothing
+     */
+    public boolean holds(long id, long timestamp, float rating) {
+        for (int s = segments.size() - 1; s >= 0; s--) {
+            InteractionSnapshot segment = segments.get(s);
+            int row = segment.find(id);
+            if (row >= 0) {
+                return segment.timestamp(row) == timestamp && segment.rating(row) == rating;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rows in the deltas, including superseded ones
+     */
+    public int getDeltaRows() {
+        int rows = 0;
+        for (int s = 1; s < segments.size(); s++) {
+            rows += segments.get(s).getSize();
+        }
+        return rows;
+    }
+
+    /**
+     * Visit every live row in interaction id order. Every segment is in id
+     * order and a live id is in exactly one segment, so the segments are
+     * merged row by row; a compacted base stays searchable by id.
+     */
+    public void forEach(RowVisitor visitor) throws IOException {
+        int[] cursors = new int[segments.size()];
+        for (int s = 0; s < segments.size(); s++) {
+            cursors[s] = superseded[s].nextClearBit(0);
+        }
+        while (true) {
+            int next = -1;
+            long nextId = Long.MAX_VALUE;
+            for (int s = 0; s < segments.size(); s++) {
+                InteractionSnapshot segment = segments.get(s);
+                if (cursors[s] < segment.getSize() && segment.id(cursors[s]) < nextId) {
+                    next = s;
+                    nextId = segment.id(cursors[s]);
+                }
+            }
+            if (next < 0) {
+                return;
+            }
+            visitor.visit(segments.get(next), cursors[next]);
+            cursors[next] = superseded[next].nextClearBit(cursors[next] + 1);
+        }
+    }
+
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(InteractionSnapshot segment, int row) throws IOException;
+    }
+}
@@ -0,0 +1,74 @@
+package com.hackhub.recommendation;
+
+/**
+ * Approximate maximum-inner-product search over the item side of a
+ * {@link FactorModel}.
+ *
+ * Ranking items for a user only depends on b_i + x_u . y_i, which is the
+ * inner product of [x_u, 1] with [y_i, b_i]. Item vectors are extended with
+ * one more coordinate sqrt(M^2 - |[y_i, b_i]|^2), where M is the largest
+ * norm; queries get 0 there. All items then have norm M, so the smallest L2
+ * distance is the largest inner product and an {@link HnswIndex} can serve
+ * the top-N.
+ */
+public class ItemAnnIndex {
+
+    private final HnswIndex graph;
+    private final int numFactors;
+    private final int dim;
+
+    private ItemAnnIndex(HnswIndex graph, int numFactors) {
+        this.graph = graph;
+        this.numFactors = numFactors;
+        this.dim = numFactors + 2;
+    }
+
+    public static ItemAnnIndex build(FactorModel model, int maxLinks, int efConstruction) {
+        int k = model.getNumFactors();
+        int dim = k + 2;
+        int numItems = model.getNumItems();
+        double[] itemFactors = model.getItemFactors();
+        double[] itemBiases = model.getItemBiases();
+
+        double[] squaredNorms = new double[numItems];
+        double maxSquaredNorm = 0;
+        for (int i = 0; i < numItems; i++) {
+            double norm = itemBiases[i] * itemBiases[i];
+            for (int f = 0; f < k; f++) {
+                double v = itemFactors[i * k + f];
+                norm += v * v;
+            }
+            squaredNorms[i] = norm;
+            maxSquaredNorm = Math.max(maxSquaredNorm, norm);
+        }
+
+        float[] vectors = new float[numItems * dim];
+        for (int i = 0; i < numItems; i++) {
+            int off = i * dim;
+            for (int f = 0; f < k; f++) {
+                vectors[off + f] = (float) itemFactors[i * k + f];
+            }
+            vectors[off + k] = (float) itemBiases[i];
+            vectors[off + k + 1] = (float) Math.sqrt(Math.max(0, maxSquaredNorm - squaredNorms[i]));
+        }
+
+        return new ItemAnnIndex(HnswIndex.build(vectors, dim, maxLinks, efConstruction, 42), k);
+    }
+
+    /**
+     * Approximate top-k item indices for a [factors..., bias] user vector
+     * (null = unknown user, ranked by item bias only)
+     *
+     * @param ef search beam width, the recall@N knob
+     */
+    public int[] topItems(double[] userVector, int k, int ef) {
+        float[] query = new float[dim];
+        if (userVector != null) {
+            for (int f = 0; f < numFactors; f++) {
+                query[f] = (float) userVector[f];
+            }
+        }
+        query[numFactors] = 1f;
+        return graph.search(query, Math.min(k, graph.size()), ef);
+    }
+}
@@ -0,0 +1,110 @@
+package com.hackhub.recommendation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Item-Based Collaborative Filtering: events similar to an event by the
+ * users who interacted with both. Serves lookups from an
+ * {@link ItemNeighborTable} rebuilt periodically on a dedicated thread, so
+ * the shared Spring scheduler is never held up; until the first build
+ * finishes there are no results and callers fall back.
+ */
+@Service
+@Slf4j
+public class ItemBasedCFService {
+
+    @Autowired
+    private LibRecDataExporter dataExporter;
+
+    @Value("${librec.itemknn.neighbors:50}")
+    private int numNeighbors;
+
+    // cosine or adjusted (cosine on ratings centered on each user's mean)
+    @Value("${librec.itemknn.similarity:cosine}")
+    private String similarity;
+
+    @Value("${librec.itemknn.max.user.items:1000}")
+    private int maxUserItems;
+
+    // 0 = one thread per available core
+    @Value("${librec.itemknn.threads:0}")
+    private int buildThreads;
+
+    @Value("${librec.itemknn.initial.delay.ms:60000}")
+    private long initialDelayMs;
+
+    @Value("${librec.itemknn.rebuild.interval.ms:3600000}")
+    private long rebuildIntervalMs;
+
+    private volatile ItemNeighborTable table;
+
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "itemknn-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Most similar event ids of an event, best first
+     */
+    public List<ItemNeighborTable.SimilarItem> getSimilarItems(Long eventId, int limit) {
+        ItemNeighborTable current = table;
+        if (current == null || eventId == null) {
+            return Collections.emptyList();
+        }
+        return current.similarItems(eventId, limit);
+    }
+
+    /**
+     * Build the table after the initial delay, then every rebuild interval
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRebuilds() {
+        rebuilder.scheduleWithFixedDelay(() -> {
+            try {
+                rebuildTable();
+            } catch (RuntimeException e) {
+                // Keep serving the previous table; retried next interval
+                log.error("Item similarity table rebuild failed", e);
+            }
+        }, initialDelayMs, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rebuild the similarity table from a fresh snapshot
+     */
+    public synchronized void rebuildTable() {
+        SparseRatingMatrix matrix;
+        try {
+            dataExporter.refreshSnapshot();
+            matrix = dataExporter.exportRatingMatrix();
+        } catch (IOException e) {
+            log.error("Could not read the interaction snapshot", e);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        table = ItemNeighborTable.build(matrix, numNeighbors, "adjusted".equalsIgnoreCase(similarity),
+                maxUserItems, buildThreads);
+        log.info("Built item similarity table: {} items, k={}, {} similarity, {}ms",
+                matrix.getNumItems(), numNeighbors, similarity, System.currentTimeMillis() - start);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+}
@@ -0,0 +1,169 @@
+package com.hackhub.recommendation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed top-K most similar items of every item of a
+ * {@link SparseRatingMatrix}, stored as two flat arrays of numItems * K
+ * entries (neighbor index, similarity), best first and padded with -1.
+ *
+ * Similarity is cosine between item columns, optionally adjusted by
+ * subtracting each user's mean rating first. The item x item matrix is never
+ * materialized: each item's co-rated items are accumulated by walking its
+ * column (users) and those users' rows, then cut to the top K, so memory is
+ * O(items * K) plus one accumulator per thread.
+ */
+public class ItemNeighborTable {
+
+    private static final int BLOCK_SIZE = 64;
+    private static final ThreadLocal<SparseAccumulator> ACCUMULATOR =
+            ThreadLocal.withInitial(SparseAccumulator::new);
+
+    @Getter
+    private final IdIndex itemIndex;
+    @Getter
+    private final int k;
+    private final int[] neighbors;
+    private final float[] similarities;
+
+    private ItemNeighborTable(IdIndex itemIndex, int k, int[] neighbors, float[] similarities) {
+        this.itemIndex = itemIndex;
+        this.k = k;
+        this.neighbors = neighbors;
+        this.similarities = similarities;
+    }
+
+    /**
+     * @param adjusted     center ratings on each user's mean (adjusted cosine)
+     * @param maxUserItems users with more items than this are skipped; their
+     *                     co-occurrences cost items^2 and carry little signal
+     */
+    public static ItemNeighborTable build(SparseRatingMatrix matrix, int k, boolean adjusted, int maxUserItems,
+            int threads) {
+        int numUsers = matrix.getNumUsers();
+        int numItems = matrix.getNumItems();
+        int[] rowPtr = matrix.getRowPtr();
+        int[] colIdx = matrix.getColIdx();
+        int[] colPtr = matrix.getColPtr();
+        int[] rowIdx = matrix.getRowIdx();
+
+        // Ratings as used by the similarity, in both layouts
+        double[] userMeans = new double[numUsers];
+        if (adjusted) {
+            float[] values = matrix.getValues();
+            for (int u = 0; u < numUsers; u++) {
+                double sum = 0;
+                for (int p = rowPtr[u]; p < rowPtr[u + 1]; p++) {
+                    sum += values[p];
+                }
+                userMeans[u] = rowPtr[u + 1] > rowPtr[u] ? sum / (rowPtr[u + 1] - rowPtr[u]) : 0;
+            }
+        }
+        float[] rowValues = matrix.getValues().clone();
+        if (adjusted) {
+            for (int u = 0; u < numUsers; u++) {
+                for (int p = rowPtr[u]; p < rowPtr[u + 1]; p++) {
+                    rowValues[p] -= (float) userMeans[u];
+                }
+            }
+        }
+        float[] colValues = matrix.getColValues().clone();
+        double[] norms = new double[numItems];
+        for (int i = 0; i < numItems; i++) {
+            for (int q = colPtr[i]; q < colPtr[i + 1]; q++) {
+                colValues[q] -= (float) userMeans[rowIdx[q]];
+            }
+            norms[i] = SparseVector.view(rowIdx, colValues, colPtr[i], colPtr[i + 1]).norm();
+        }
+
+        int[] neighbors = new int[numItems * k];
+        float[] similarities = new float[numItems * k];
+        Arrays.fill(neighbors, -1);
+
+        int blocks = (numItems + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        try {
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block -> {
+                SparseAccumulator acc = ACCUMULATOR.get();
+                TopNHeap heap = new TopNHeap(k);
+                int end = Math.min(numItems, (block + 1) * BLOCK_SIZE);
+                for (int item = block * BLOCK_SIZE; item < end; item++) {
+                    if (norms[item] == 0) {
+                        continue;
+                    }
+                    acc.reset(numItems);
+                    SparseVector raters = SparseVector.view(rowIdx, colValues, colPtr[item], colPtr[item + 1]);
+                    for (int n = 0; n < raters.size(); n++) {
+                        int user = raters.index(n);
+                        SparseVector userRow = SparseVector.view(colIdx, rowValues, rowPtr[user], rowPtr[user + 1]);
+                        if (userRow.size() > maxUserItems) {
+                            continue;
+                        }
+                        double rating = raters.value(n);
+                        for (int p = 0; p < userRow.size(); p++) {
+                            if (userRow.index(p) != item) {
+                                acc.add(userRow.index(p), rating * userRow.value(p), 0, 0);
+                            }
+                        }
+                    }
+
+                    for (int n = 0; n < acc.size(); n++) {
+                        int other = acc.index(n);
+                        if (norms[other] > 0) {
+                            double similarity = acc.a(other) / (norms[item] * norms[other]);
+                            if (similarity > 0) {
+                                heap.offer(similarity, other);
+                            }
+                        }
+                    }
+                    int[] top = heap.drainDescending();
+                    for (int n = 0; n < top.length; n++) {
+                        neighbors[item * k + n] = top[n];
+                        similarities[item * k + n] = (float) (acc.a(top[n]) / (norms[item] * norms[top[n]]));
+                    }
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Item similarity build interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Item similarity build failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return new ItemNeighborTable(matrix.getItemIndex(), k, neighbors, similarities);
+    }
+
+    /**
+     * Most similar items of an item id, best first; empty if the item is
+     * unknown or shares no users with any other item
+     */
+    public List<SimilarItem> similarItems(long itemId, int limit) {
+        int item = itemIndex.indexOf(itemId);
+        if (item < 0) {
+            return Collections.emptyList();
+        }
+        List<SimilarItem> result = new ArrayList<>(Math.min(k, limit));
+        for (int n = item * k; n < item * k + Math.min(k, limit) && neighbors[n] >= 0; n++) {
+            result.add(new SimilarItem(itemIndex.idAt(neighbors[n]), similarities[n]));
+        }
+        return result;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SimilarItem {
+        private long itemId;
+        private double similarity;
+    }
+}
@@ -1,6 +1,6 @@
 package com.hackhub.recommendation;
 
-import com.hackhub.model.Interaction;
+import com.hackhub.dto.InteractionRating;
 import com.hackhub.repository.InteractionRepository;
 import com.hackhub.service.InteractionService;
 import lombok.AllArgsConstructor;
@@ -9,15 +9,25 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -29,119 +39,415 @@ public class LibRecDataExporter {
     @Autowired
     private InteractionService interactionService;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Value("${librec.data.path:src/main/resources/librec/data}")
     private String dataPath;
 
+    // Append only new/changed rows on refresh instead of re-exporting everything
+    @Value("${librec.snapshot.incremental:true}")
+    private boolean incremental;
+
+    // Re-read rows this far behind the timestamp watermark, for transactions
+    // that committed after a later-stamped row was already exported
+    @Value("${librec.snapshot.overlap.seconds:300}")
+    private long overlapSeconds;
+
+    // Compact deltas into a new base past this many segments...
+    @Value("${librec.snapshot.compact.segments:16}")
+    private int compactSegments;
+
+    // ...or once delta rows exceed this fraction of the base
+    @Value("${librec.snapshot.compact.ratio:0.25}")
+    private double compactRatio;
+
+    // Full re-export interval; the only way deleted interactions drop out
+    @Value("${librec.snapshot.full.refresh.hours:168}")
+    private long fullRefreshHours;
+
+    @Value("${librec.stats.cache.seconds:60}")
+    private long statsCacheSeconds;
+
+    private volatile CachedStats cachedStats;
+
+    // Current snapshot, mapped once and shared by readers
+    private volatile InteractionSnapshotSet snapshot;
+
     /**
-     * Export all interactions to LibRec format
-     * Format: userId itemId rating timestamp
+     * Bring the snapshot up to date: append a delta segment with the rows
+     * created or changed since the watermark, compacting when the deltas
+     * grow, or export everything if there is no usable snapshot yet. Rows
+     * re-read by the overlap window that the snapshot already holds
+     * unchanged are skipped, and nothing is written when no row is left.
      */
-    public void exportToLibRecFormat() throws IOException {
-        List<Interaction> interactions = interactionRepository.findAll();
+    public synchronized InteractionSnapshotSet refreshSnapshot() throws IOException {
+        SnapshotManifest manifest = readManifest();
+        if (!incremental || manifest == null
+                || System.currentTimeMillis() - manifest.getBaseCreatedAt() > fullRefreshHours * 3_600_000L) {
+            return exportSnapshot();
+        }
+        InteractionSnapshotSet current = snapshot;
+        if (current == null) {
+            try {
+                current = openSnapshot(manifest);
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable snapshot: {}", e.getMessage());
+                return exportSnapshot();
+            }
+        }
 
-        File dataDir = new File(dataPath);
-        if (!dataDir.exists()) {
-            dataDir.mkdirs();
+        long start = System.currentTimeMillis();
+        Path delta = Paths.get(dataPath, "interactions-" + (manifest.getSequence() + 1) + ".delta");
+        LocalDateTime since = LocalDateTime.ofEpochSecond(
+                manifest.getWatermarkTimestamp() - overlapSeconds, 0, ZoneOffset.UTC);
+        long[] watermarks = { manifest.getWatermarkId(), manifest.getWatermarkTimestamp() };
+        long rows = writeSegment(delta,
+                () -> interactionRepository.streamRatingsChangedSince(manifest.getWatermarkId(), since),
+                current, watermarks);
+
+        if (rows == 0) {
+            Files.deleteIfExists(delta);
+            log.debug("Snapshot is up to date ({}ms)", System.currentTimeMillis() - start);
+            snapshot = current;
+            return current;
         }
+        manifest.setSequence(manifest.getSequence() + 1);
+        manifest.getDeltas().add(delta.getFileName().toString());
+        manifest.setWatermarkId(watermarks[0]);
+        manifest.setWatermarkTimestamp(watermarks[1]);
+        manifest.write(manifestFile());
+
+        InteractionSnapshotSet refreshed = openSnapshot(manifest);
+        log.info("Appended {} new or changed interactions to the snapshot in {}ms ({} segments)",
+                rows, System.currentTimeMillis() - start, refreshed.getNumSegments());
+
+        if (manifest.getDeltas().size() >= compactSegments
+                || refreshed.getDeltaRows() > compactRatio * (refreshed.getSize() - refreshed.getDeltaRows())) {
+            refreshed = compact(manifest, refreshed);
+        }
+        snapshot = refreshed;
+        return refreshed;
+    }
 
-        File ratingsFile = new File(dataDir, "ratings.txt");
+    /**
+     * Snapshot the whole interaction table into a new base. Training,
+     * splitting and stats read from the snapshot; exports are the only
+     * readers of the database.
+     */
+    public synchronized InteractionSnapshotSet exportSnapshot() throws IOException {
+        long start = System.currentTimeMillis();
+        SnapshotManifest previous = readManifest();
+
+        SnapshotManifest manifest = new SnapshotManifest();
+        manifest.setSequence((previous != null ? previous.getSequence() : 0) + 1);
+        manifest.setBase("interactions-" + manifest.getSequence() + ".snap");
+        manifest.setBaseCreatedAt(System.currentTimeMillis());
+
+        long[] watermarks = { 0, 0 };
+        long rows = writeSegment(Paths.get(dataPath, manifest.getBase()),
+                interactionRepository::streamAllRatings, null, watermarks);
+        manifest.setWatermarkId(watermarks[0]);
+        manifest.setWatermarkTimestamp(watermarks[1]);
+        manifest.write(manifestFile());
+        deleteSegments(previous);
+
+        InteractionSnapshotSet written = openSnapshot(manifest);
+        snapshot = written;
+        log.info("Snapshotted {} interactions to {} in {}ms", rows, manifest.getBase(),
+                System.currentTimeMillis() - start);
+        return written;
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(ratingsFile))) {
-            for (Interaction interaction : interactions) {
-                // Convert interaction to rating
-                double rating = interactionService.calculateImplicitRating(interaction);
-
-                // Format: userId itemId rating timestamp
-                writer.printf("%d %d %.1f %d%n",
-                        interaction.getUser().getId(),
-                        interaction.getEvent().getId(),
-                        rating,
-                        interaction.getTimestamp().toEpochSecond(ZoneOffset.UTC));
-            }
+    /**
+     * Rewrite base + deltas as a single base (reads files only, not the DB)
+     */
+    private InteractionSnapshotSet compact(SnapshotManifest manifest, InteractionSnapshotSet current)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        SnapshotManifest previous = SnapshotManifest.read(manifestFile());
+
+        manifest.setSequence(manifest.getSequence() + 1);
+        manifest.setBase("interactions-" + manifest.getSequence() + ".snap");
+        manifest.setDeltas(new ArrayList<>());
+
+        try (InteractionSnapshot.Writer writer = InteractionSnapshot.writer(Paths.get(dataPath, manifest.getBase()))) {
+            current.forEach((segment, row) -> writer.append(segment.id(row), segment.userId(row),
+                    segment.eventId(row), segment.rating(row), segment.timestamp(row)));
+            writer.commit();
         }
+        manifest.write(manifestFile());
+        deleteSegments(previous);
 
-        log.info("Exported {} interactions to {}", interactions.size(), ratingsFile.getAbsolutePath());
+        InteractionSnapshotSet compacted = openSnapshot(manifest);
+        log.info("Compacted snapshot into {} ({} interactions) in {}ms",
+                manifest.getBase(), compacted.getSize(), System.currentTimeMillis() - start);
+        return compacted;
     }
 
     /**
-     * Split data into train/test sets (80/20)
+     * Stream query rows into one snapshot file, advancing watermarks
+     * ({max id, max timestamp}) in place
+     *
+     * @param current rows this snapshot already holds unchanged are skipped;
+     *                null writes every row
      */
-    public void splitTrainTest() throws IOException {
-        File ratingsFile = new File(dataPath, "ratings.txt");
+    private long writeSegment(Path file, Supplier<Stream<InteractionRating>> query,
+            InteractionSnapshotSet current, long[] watermarks) throws IOException {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        try (InteractionSnapshot.Writer writer = InteractionSnapshot.writer(file)) {
+            transaction.executeWithoutResult(status -> {
+                try (Stream<InteractionRating> interactions = query.get()) {
+                    Iterator<InteractionRating> rows = interactions.iterator();
+                    while (rows.hasNext()) {
+                        InteractionRating row = rows.next();
+                        long timestamp = row.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+                        float rating = (float) rating(row);
+                        if (current != null && current.holds(row.getId(), timestamp, rating)) {
+                            continue;
+                        }
+                        writer.append(row.getId(), row.getUserId(), row.getEventId(), rating, timestamp);
+                        watermarks[0] = Math.max(watermarks[0], row.getId());
+                        watermarks[1] = Math.max(watermarks[1], timestamp);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.commit();
+            return writer.getRowCount();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        if (!ratingsFile.exists()) {
-            log.warn("Ratings file not found. Exporting data first...");
-            exportToLibRecFormat();
+    /**
+     * The current snapshot, exporting one first if none exists
+     */
+    public InteractionSnapshotSet getSnapshot() throws IOException {
+        InteractionSnapshotSet current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                SnapshotManifest manifest = readManifest();
+                if (manifest != null) {
+                    try {
+                        snapshot = openSnapshot(manifest);
+                    } catch (IOException e) {
+                        log.warn("Ignoring unreadable snapshot: {}", e.getMessage());
+                    }
+                }
+                if (snapshot == null) {
+                    exportSnapshot();
+                }
+            }
+            return snapshot;
         }
+    }
 
-        List<String> lines = Files.readAllLines(ratingsFile.toPath());
+    private InteractionSnapshotSet openSnapshot(SnapshotManifest manifest) throws IOException {
+        List<InteractionSnapshot> segments = new ArrayList<>();
+        segments.add(InteractionSnapshot.open(Paths.get(dataPath, manifest.getBase())));
+        for (String delta : manifest.getDeltas()) {
+            segments.add(InteractionSnapshot.open(Paths.get(dataPath, delta)));
+        }
+        return InteractionSnapshotSet.of(segments);
+    }
 
-        Collections.shuffle(lines);
+    private SnapshotManifest readManifest() {
+        Path file = manifestFile();
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return SnapshotManifest.read(file);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable snapshot manifest: {}", e.getMessage());
+            return null;
+        }
+    }
 
-        int trainSize = (int) (lines.size() * 0.8);
-        List<String> trainLines = lines.subList(0, trainSize);
-        List<String> testLines = lines.subList(trainSize, lines.size());
+    /**
+     * Remove the files of a replaced manifest (readers that still map them
+     * keep working until they drop the mapping)
+     */
+    private void deleteSegments(SnapshotManifest replaced) {
+        if (replaced == null) {
+            return;
+        }
+        List<String> files = new ArrayList<>(replaced.getDeltas());
+        files.add(replaced.getBase());
+        for (String name : files) {
+            try {
+                Files.deleteIfExists(Paths.get(dataPath, name));
+            } catch (IOException e) {
+                log.debug("Could not delete old snapshot segment {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private Path manifestFile() {
+        return Paths.get(dataPath, "interactions.manifest");
+    }
+
+    /**
+     * Export all interactions to LibRec format (optional, for offline tools)
+     * Format: userId itemId rating timestamp
+     */
+    public void exportToLibRecFormat() throws IOException {
+        InteractionSnapshotSet interactions = getSnapshot();
+
+        File dataDir = new File(dataPath);
+        if (!dataDir.exists()) {
+            dataDir.mkdirs();
+        }
+
+        File ratingsFile = new File(dataDir, "ratings.txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(ratingsFile.toPath(), StandardCharsets.UTF_8)) {
+            interactions.forEach((segment, row) -> writeLibRec(writer, segment, row));
+        }
 
-        // Write train set
-        Files.write(new File(dataPath, "train.txt").toPath(), trainLines);
+        log.info("Exported {} interactions to {}", interactions.getSize(), ratingsFile.getAbsolutePath());
+    }
 
-        // Write test set
-        Files.write(new File(dataPath, "test.txt").toPath(), testLines);
+    // Format: userId itemId rating timestamp
+    private static void writeLibRec(Writer writer, InteractionSnapshot segment, int row) throws IOException {
+        writer.write(Long.toString(segment.userId(row)));
+        writer.write(' ');
+        writer.write(Long.toString(segment.eventId(row)));
+        writer.write(' ');
+        writeRating(writer, segment.rating(row));
+        writer.write(' ');
+        writer.write(Long.toString(segment.timestamp(row)));
+        writer.write('\n');
+    }
+
+    /**
+     * Write a non-negative rating with one decimal, like %.1f without the
+     * formatter overhead
+     */
+    private static void writeRating(Writer writer, double rating) throws IOException {
+        long tenths = Math.round(rating * 10);
+        writer.write(Long.toString(tenths / 10));
+        writer.write('.');
+        writer.write((char) ('0' + tenths % 10));
+    }
 
-        log.info("Split data: {} train, {} test", trainLines.size(), testLines.size());
+    private double rating(InteractionRating row) {
+        return interactionService.calculateImplicitRating(
+                row.getType(), row.getRating(), row.getViewDurationSeconds());
     }
 
     /**
-     * Export user-item matrix for collaborative filtering
+     * Split data into train/test sets (80/20) in LibRec format. Each row is
+     * assigned independently, so the split streams in constant memory.
      */
-    public Map<Long, Map<Long, Double>> exportUserItemMatrix() {
-        List<Interaction> interactions = interactionRepository.findAll();
+    public void splitTrainTest() throws IOException {
+        InteractionSnapshotSet interactions = getSnapshot();
+        Files.createDirectories(Paths.get(dataPath));
+
+        Random random = new Random();
+        int[] trainSize = { 0 };
+        try (BufferedWriter train = Files.newBufferedWriter(Paths.get(dataPath, "train.txt"), StandardCharsets.UTF_8);
+                BufferedWriter test = Files.newBufferedWriter(Paths.get(dataPath, "test.txt"), StandardCharsets.UTF_8)) {
+            interactions.forEach((segment, row) -> {
+                if (random.nextDouble() < 0.8) {
+                    writeLibRec(train, segment, row);
+                    trainSize[0]++;
+                } else {
+                    writeLibRec(test, segment, row);
+                }
+            });
+        }
 
-        Map<Long, Map<Long, Double>> matrix = new HashMap<>();
+        log.info("Split data: {} train, {} test", trainSize[0], interactions.getSize() - trainSize[0]);
+    }
 
-        for (Interaction interaction : interactions) {
-            Long userId = interaction.getUser().getId();
-            Long eventId = interaction.getEvent().getId();
+    /**
+     * Build the user-item rating matrix for collaborative filtering from the
+     * snapshot. When a user interacted with an event more than once the last
+     * interaction wins.
+     */
+    public SparseRatingMatrix exportRatingMatrix() throws IOException {
+        return exportRatingMatrix(getSnapshot());
+    }
 
-            // Convert interaction to rating
-            double rating = interactionService.calculateImplicitRating(interaction);
+    /**
+     * Rating matrix of a given snapshot, e.g. one whose watermark the
+     * caller records alongside the model trained on it
+     */
+    public SparseRatingMatrix exportRatingMatrix(InteractionSnapshotSet interactions) throws IOException {
+        // Rows come in interaction id order, so the latest interaction wins
+        SparseRatingMatrix.Builder builder = SparseRatingMatrix.builder(interactions.getSize());
+        interactions.forEach((segment, row) ->
+                builder.add(segment.userId(row), segment.eventId(row), segment.rating(row)));
 
-            matrix.computeIfAbsent(userId, k -> new HashMap<>())
-                    .put(eventId, rating);
-        }
+        return builder.build();
+    }
+
+    /**
+     * Number of interactions, for cheap "enough data to train?" checks
+     */
+    public long countInteractions() {
+        return interactionRepository.count();
+    }
 
-        return matrix;
+    /**
+     * Interactions a model has not seen: created after its training data
+     * (ids above dataWatermarkId) or changed after it was trained. Models
+     * without a watermark only count changes after trainedAt.
+     */
+    public long countInteractionsSince(ModelMetadata metadata) {
+        LocalDateTime since = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(metadata.getTrainedAt()), ZoneId.systemDefault());
+        long afterId = metadata.getDataWatermarkId() > 0 ? metadata.getDataWatermarkId() : Long.MAX_VALUE;
+        return interactionRepository.countChangedSince(afterId, since);
     }
 
     /**
-     * Get statistics about the dataset
+     * Get statistics about the dataset from one aggregate query, cached for
+     * librec.stats.cache.seconds
      */
     public DatasetStats getDatasetStats() {
-        List<Interaction> interactions = interactionRepository.findAll();
-
-        Set<Long> uniqueUsers = interactions.stream()
-                .map(i -> i.getUser().getId())
-                .collect(Collectors.toSet());
+        CachedStats cached = cachedStats;
+        if (cached != null && System.currentTimeMillis() - cached.computedAt < statsCacheSeconds * 1000L) {
+            return cached.stats;
+        }
 
-        Set<Long> uniqueEvents = interactions.stream()
-                .map(i -> i.getEvent().getId())
-                .collect(Collectors.toSet());
+        Object[] counts = interactionRepository.countInteractionsUsersAndEvents().get(0);
+        int totalInteractions = ((Number) counts[0]).intValue();
+        int uniqueUsers = ((Number) counts[1]).intValue();
+        int uniqueEvents = ((Number) counts[2]).intValue();
 
-        double avgInteractionsPerUser = uniqueUsers.isEmpty() ? 0 : (double) interactions.size() / uniqueUsers.size();
-        double avgInteractionsPerEvent = uniqueEvents.isEmpty() ? 0
-                : (double) interactions.size() / uniqueEvents.size();
+        double avgInteractionsPerUser = uniqueUsers == 0 ? 0 : (double) totalInteractions / uniqueUsers;
+        double avgInteractionsPerEvent = uniqueEvents == 0 ? 0 : (double) totalInteractions / uniqueEvents;
 
         // Calculate sparsity
-        long possibleInteractions = (long) uniqueUsers.size() * uniqueEvents.size();
-        double sparsity = possibleInteractions == 0 ? 0 : 1.0 - ((double) interactions.size() / possibleInteractions);
+        long possibleInteractions = (long) uniqueUsers * uniqueEvents;
+        double sparsity = possibleInteractions == 0 ? 0 : 1.0 - ((double) totalInteractions / possibleInteractions);
 
-        return new DatasetStats(
-                interactions.size(),
-                uniqueUsers.size(),
-                uniqueEvents.size(),
+        DatasetStats stats = new DatasetStats(
+                totalInteractions,
+                uniqueUsers,
+                uniqueEvents,
                 avgInteractionsPerUser,
                 avgInteractionsPerEvent,
                 sparsity);
+        cachedStats = new CachedStats(stats, System.currentTimeMillis());
+        return stats;
+    }
+
+    private static class CachedStats {
+        private final DatasetStats stats;
+        private final long computedAt;
+
+        private CachedStats(DatasetStats stats, long computedAt) {
+            this.stats = stats;
+            this.computedAt = computedAt;
+        }
     }
 
     @Data
@@ -0,0 +1,167 @@
+package com.hackhub.recommendation;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * MinHash signatures of every user's item set with banded LSH buckets, for
+ * retrieving users likely to have a high Jaccard overlap without scanning
+ * all users.
+ *
+ * A signature is bands * rows minimums of independent hashes of the user's
+ * item ids. Two users collide in a band when all rows of the band agree,
+ * which happens with probability J^rows for Jaccard similarity J; they become
+ * candidates if any band collides, probability 1 - (1 - J^rows)^bands. More
+ * bands raise recall, more rows raise precision. Hashing item ids (not dense
+ * indices) keeps signatures comparable across rebuilds, and adding an item
+ * only lowers signature entries, so signatures update in place.
+ *
+ * Each band's buckets are one sorted array of (band hash, user) pairs packed
+ * into longs; a lookup is a binary search.
+ */
+public class MinHashLshIndex {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    @Getter
+    private final int bands;
+    @Getter
+    private final int rows;
+    private final long[] multipliers;
+    private final long[] increments;
+    private final int[] signatures; // numUsers * bands * rows
+    private final long[][] buckets;
+
+    private MinHashLshIndex(int bands, int rows, long[] multipliers, long[] increments, int[] signatures,
+            long[][] buckets) {
+        this.bands = bands;
+        this.rows = rows;
+        this.multipliers = multipliers;
+        this.increments = increments;
+        this.signatures = signatures;
+        this.buckets = buckets;
+    }
+
+    public static MinHashLshIndex build(SparseRatingMatrix matrix, int bands, int rows, int threads) {
+        int numHashes = bands * rows;
+        Random random = new Random(42);
+        long[] multipliers = new long[numHashes];
+        long[] increments = new long[numHashes];
+        for (int h = 0; h < numHashes; h++) {
+            multipliers[h] = random.nextLong() | 1L;
+            increments[h] = random.nextLong();
+        }
+
+        int numUsers = matrix.getNumUsers();
+        int[] rowPtr = matrix.getRowPtr();
+        int[] colIdx = matrix.getColIdx();
+        IdIndex itemIndex = matrix.getItemIndex();
+        int[] signatures = new int[numUsers * numHashes];
+        long[][] buckets = new long[bands][];
+
+        MinHashLshIndex index = new MinHashLshIndex(bands, rows, multipliers, increments, signatures, buckets);
+        int blocks = (numUsers + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        try {
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block -> {
+                int end = Math.min(numUsers, (block + 1) * BLOCK_SIZE);
+                for (int user = block * BLOCK_SIZE; user < end; user++) {
+                    int off = user * numHashes;
+                    Arrays.fill(signatures, off, off + numHashes, Integer.MAX_VALUE);
+                    for (int p = rowPtr[user]; p < rowPtr[user + 1]; p++) {
+                        index.update(signatures, off, itemIndex.idAt(colIdx[p]));
+                    }
+                }
+            })).get();
+
+            pool.submit(() -> IntStream.range(0, bands).parallel().forEach(band -> {
+                long[] entries = new long[numUsers];
+                int size = 0;
+                for (int user = 0; user < numUsers; user++) {
+                    if (rowPtr[user + 1] > rowPtr[user]) {
+                        entries[size++] = pack(index.bandKey(signatures, user * numHashes, band), user);
+                    }
+                }
+                entries = Arrays.copyOf(entries, size);
+                Arrays.sort(entries);
+                buckets[band] = entries;
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("LSH index build interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("LSH index build failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return index;
+    }
+
+    /**
+     * Copy of a user's signature, or an empty-set signature for -1
+     */
+    public int[] signature(int user) {
+        int numHashes = bands * rows;
+        if (user < 0) {
+            int[] empty = new int[numHashes];
+            Arrays.fill(empty, Integer.MAX_VALUE);
+            return empty;
+        }
+        return Arrays.copyOfRange(signatures, user * numHashes, (user + 1) * numHashes);
+    }
+
+    /**
+     * Fold one more item id into a signature
+     */
+    public void update(int[] signature, long itemId) {
+        update(signature, 0, itemId);
+    }
+
+    /**
+     * Add every user sharing a bucket with signature to acc (once each),
+     * except exclude
+     */
+    public void candidates(int[] signature, int exclude, SparseAccumulator acc) {
+        for (int band = 0; band < bands; band++) {
+            int key = bandKey(signature, 0, band);
+            long[] entries = buckets[band];
+            int lo = Arrays.binarySearch(entries, pack(key, 0));
+            if (lo < 0) {
+                lo = -lo - 1;
+            }
+            for (int n = lo; n < entries.length && (int) (entries[n] >> 32) == key; n++) {
+                int user = (int) entries[n];
+                if (user != exclude) {
+                    acc.add(user, 0, 0, 0);
+                }
+            }
+        }
+    }
+
+    private void update(int[] signature, int off, long itemId) {
+        for (int h = 0; h < multipliers.length; h++) {
+            // Multiply-shift hash: high 31 bits of a*x + b, a non-negative int
+            int value = (int) ((multipliers[h] * itemId + increments[h]) >>> 33);
+            if (value < signature[off + h]) {
+                signature[off + h] = value;
+            }
+        }
+    }
+
+    private int bandKey(int[] signature, int off, int band) {
+        int hash = band;
+        for (int r = band * rows; r < (band + 1) * rows; r++) {
+            hash = 31 * hash + signature[off + r];
+        }
+        return hash;
+    }
+
+    private static long pack(int key, int user) {
+        return ((long) key << 32) | user;
+    }
+}
@@ -0,0 +1,191 @@
+package com.hackhub.recommendation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Metrics of a model on a set of ratings. Explicit models are scored on the
+ * served (1-5 clamped) rating. Implicit models predict a preference, not a
+ * rating, and error against 1.0 only rewards inflated scores, so they are
+ * ranked by how each held-out item scores against sampled items its user
+ * never interacted with (AUC and recall@N, see {@link NegativeSample}).
+ */
+@Data
+@AllArgsConstructor
+public class ModelEvaluation {
+
+    /** Cutoff N of recall@N, among the held-out item and its negatives */
+    public static final int CUTOFF = 10;
+
+    private double rmse;
+    private double mae;
+    private int count;
+    private double auc;
+    private double recall; // recall@CUTOFF
+    private boolean ranked; // auc and recall were measured
+
+    /**
+     * What model selection minimizes: 1 - AUC when ranking metrics were
+     * measured, RMSE otherwise
+     */
+    public double loss() {
+        return ranked ? 1.0 - auc : rmse;
+    }
+
+    /**
+     * Error metrics only; for implicit models the error is against 1.0
+     */
+    public static ModelEvaluation evaluate(FactorModel model, RatingTriples ratings) {
+        int[] users = ratings.getUsers();
+        int[] items = ratings.getItems();
+        float[] values = ratings.getRatings();
+        int size = ratings.getSize();
+        boolean implicit = model.isImplicitFeedback();
+
+        double squaredError = 0;
+        double absoluteError = 0;
+        for (int n = 0; n < size; n++) {
+            double prediction = model.predict(users[n], items[n]);
+            double error = implicit
+                    ? 1.0 - prediction
+                    : values[n] - Math.max(1.0, Math.min(5.0, prediction));
+            squaredError += error * error;
+            absoluteError += Math.abs(error);
+        }
+        if (size == 0) {
+            return new ModelEvaluation(0, 0, 0, 0, 0, false);
+        }
+        return new ModelEvaluation(Math.sqrt(squaredError / size), absoluteError / size, size, 0, 0, false);
+    }
+
+    /**
+     * Error metrics plus AUC and recall@N over sample; a null sample (explicit
+     * models) measures errors only
+     */
+    public static ModelEvaluation evaluate(FactorModel model, RatingTriples ratings, NegativeSample sample) {
+        ModelEvaluation evaluation = evaluate(model, ratings);
+        if (sample == null || sample.getSize() == 0) {
+            return evaluation;
+        }
+
+        int[] users = sample.getUsers();
+        int[] items = sample.getItems();
+        int[] negatives = sample.getNegatives();
+        int perPositive = sample.getPerPositive();
+        double aucSum = 0;
+        int hits = 0;
+        for (int n = 0; n < sample.getSize(); n++) {
+            double positive = model.predict(users[n], items[n]);
+            double below = 0;
+            int above = 0;
+            for (int m = n * perPositive; m < (n + 1) * perPositive; m++) {
+                double negative = model.predict(users[n], negatives[m]);
+                if (negative < positive) {
+                    below++;
+                } else if (negative == positive) {
+                    below += 0.5;
+                } else {
+                    above++;
+                }
+            }
+            aucSum += below / perPositive;
+            if (above < CUTOFF) {
+                hits++;
+            }
+        }
+        evaluation.setAuc(aucSum / sample.getSize());
+        evaluation.setRecall((double) hits / sample.getSize());
+        evaluation.setRanked(true);
+        return evaluation;
+    }
+
+    /**
+     * Up to maxPositives held-out (user, item) pairs, each with perPositive
+     * items drawn uniformly from those the user has no interaction with in
+     * either split. Drawn once per split, so every epoch and every trial is
+     * ranked against the same negatives.
+     */
+    @Getter
+    public static class NegativeSample {
+        private final int[] users;
+        private final int[] items;
+        private final int[] negatives; // size * perPositive
+        private final int perPositive;
+        private final int size;
+
+        private NegativeSample(int[] users, int[] items, int[] negatives, int perPositive, int size) {
+            this.users = users;
+            this.items = items;
+            this.negatives = negatives;
+            this.perPositive = perPositive;
+            this.size = size;
+        }
+
+        public static NegativeSample draw(RatingTriples validation, RatingTriples train, int perPositive,
+                int maxPositives, long seed) {
+            int numUsers = validation.getUserIndex().size();
+            int numItems = validation.getItemIndex().size();
+
+            // Every user's observed items, sorted, from both splits
+            int[] rowPtr = new int[numUsers + 1];
+            for (RatingTriples triples : new RatingTriples[] { train, validation }) {
+                for (int n = 0; n < triples.getSize(); n++) {
+                    rowPtr[triples.getUsers()[n] + 1]++;
+                }
+            }
+            for (int u = 0; u < numUsers; u++) {
+                rowPtr[u + 1] += rowPtr[u];
+            }
+            int[] observed = new int[rowPtr[numUsers]];
+            int[] fill = Arrays.copyOf(rowPtr, numUsers);
+            for (RatingTriples triples : new RatingTriples[] { train, validation }) {
+                for (int n = 0; n < triples.getSize(); n++) {
+                    observed[fill[triples.getUsers()[n]]++] = triples.getItems()[n];
+                }
+            }
+            for (int u = 0; u < numUsers; u++) {
+                Arrays.sort(observed, rowPtr[u], rowPtr[u + 1]);
+            }
+
+            // Partial shuffle picks the held-out pairs to rank
+            Random random = new Random(seed);
+            int[] order = new int[validation.getSize()];
+            for (int n = 0; n < order.length; n++) {
+                order[n] = n;
+            }
+            int wanted = Math.min(maxPositives, order.length);
+            int[] users = new int[wanted];
+            int[] items = new int[wanted];
+            int[] negatives = new int[wanted * perPositive];
+            int size = 0;
+            for (int n = 0; n < wanted; n++) {
+                int swap = n + random.nextInt(order.length - n);
+                int pick = order[swap];
+                order[swap] = order[n];
+                order[n] = pick;
+
+                int user = validation.getUsers()[pick];
+                int from = rowPtr[user];
+                int to = rowPtr[user + 1];
+                if (to - from >= numItems) {
+                    continue; // nothing left to rank against
+                }
+                users[size] = user;
+                items[size] = validation.getItems()[pick];
+                for (int m = 0; m < perPositive; m++) {
+                    int item;
+                    do {
+                        item = random.nextInt(numItems);
+                    } while (Arrays.binarySearch(observed, from, to, item) >= 0);
+                    negatives[size * perPositive + m] = item;
+                }
+                size++;
+            }
+            return new NegativeSample(users, items, negatives, perPositive, size);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.hackhub.recommendation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Descriptive information stored alongside a trained model
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ModelMetadata {
+    private String algorithm;
+    private long trainedAt; // epoch millis
+    private double rmse;
+    private double mae;
+    private int numRatings;
+    private long dataWatermarkId; // highest interaction id in the training data, 0 = unknown
+}
@@ -0,0 +1,180 @@
+package com.hackhub.recommendation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Directory of versioned model files plus a CURRENT pointer naming the
+ * version every node should serve.
+ *
+ * Layout under librec.model.path: versions/model-&lt;version&gt;.bin and
+ * CURRENT (the version as text). Model files are written before CURRENT is
+ * moved to them and both writes are atomic renames, so a reader never sees a
+ * partial model. Rolling back only rewrites CURRENT. Put the directory on a
+ * volume shared by all nodes.
+ */
+@Component
+@Slf4j
+public class ModelRegistry {
+
+    private static final String CURRENT = "CURRENT";
+    private static final String PREFIX = "model-";
+    private static final String SUFFIX = ".bin";
+
+    @Value("${librec.model.path:src/main/resources/librec/model}")
+    private String modelPath;
+
+    // Versions kept on disk besides the current one (rollback targets)
+    @Value("${librec.model.retain:5}")
+    private int retain;
+
+    /**
+     * Write a new version and make it current
+     *
+     * @return the version id
+     */
+    public synchronized String publish(FactorModel model) throws IOException {
+        long trainedAt = model.getMetadata() != null ? model.getMetadata().getTrainedAt() : 0;
+        String version = String.format("%013d", trainedAt > 0 ? trainedAt : System.currentTimeMillis());
+        while (Files.exists(versionFile(version))) {
+            version = String.format("%013d", Long.parseLong(version) + 1);
+        }
+
+        FactorModelFile.write(model, versionFile(version));
+        setCurrent(version);
+        prune(version);
+        return version;
+    }
+
+    /**
+     * Version CURRENT points to, if any
+     */
+    public Optional<String> currentVersion() throws IOException {
+        Path pointer = root().resolve(CURRENT);
+        if (!Files.exists(pointer)) {
+            return Optional.empty();
+        }
+        String version = Files.readString(pointer, StandardCharsets.UTF_8).trim();
+        return version.isEmpty() ? Optional.empty() : Optional.of(version);
+    }
+
+    /**
+     * Memory-map and validate a version
+     */
+    public FactorModel load(String version) throws IOException {
+        return FactorModelFile.read(versionFile(checkVersion(version)));
+    }
+
+    /**
+     * Point CURRENT at an existing version; nodes pick it up on their next
+     * poll
+     *
+     * @throws NoSuchFileException if the version does not exist
+     * @throws IOException         if the version fails validation
+     */
+    public synchronized void rollback(String version) throws IOException {
+        FactorModelFile.read(versionFile(checkVersion(version)));
+        setCurrent(version);
+        log.info("Model registry rolled back to version {}", version);
+    }
+
+    /**
+     * Stored versions, newest first
+     */
+    public List<ModelVersion> listVersions() throws IOException {
+        String current = currentVersion().orElse(null);
+        List<ModelVersion> result = new ArrayList<>();
+        for (String version : versions()) {
+            Path file = versionFile(version);
+            ModelMetadata metadata;
+            try {
+                metadata = FactorModelFile.readMetadata(file);
+            } catch (IOException e) {
+                metadata = null; // listed so it can be inspected, but not loadable
+            }
+            result.add(new ModelVersion(version, version.equals(current), Files.size(file), metadata));
+        }
+        return result;
+    }
+
+    private List<String> versions() throws IOException {
+        Path dir = root().resolve("versions");
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> name.substring(PREFIX.length(), name.length() - SUFFIX.length()))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        }
+    }
+
+    private void setCurrent(String version) throws IOException {
+        Path root = root();
+        Files.createDirectories(root);
+        Path tmp = Files.createTempFile(root, CURRENT, ".tmp");
+        try {
+            Files.writeString(tmp, version, StandardCharsets.UTF_8);
+            Files.move(tmp, root.resolve(CURRENT), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /**
+     * Delete the oldest versions beyond the retention, never the current one
+     */
+    private void prune(String current) throws IOException {
+        List<String> versions = versions();
+        int kept = 0;
+        for (String version : versions) {
+            if (version.equals(current)) {
+                continue;
+            }
+            if (kept++ >= retain) {
+                Files.deleteIfExists(versionFile(version));
+                log.debug("Pruned model version {}", version);
+            }
+        }
+    }
+
+    private String checkVersion(String version) throws IOException {
+        if (!version.matches("\\d+") || !Files.exists(versionFile(version))) {
+            throw new NoSuchFileException("Unknown model version " + version);
+        }
+        return version;
+    }
+
+    private Path versionFile(String version) {
+        return root().resolve("versions").resolve(PREFIX + version + SUFFIX);
+    }
+
+    private Path root() {
+        return Paths.get(modelPath);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ModelVersion {
+        private String version;
+        private boolean current;
+        private long sizeBytes;
+        private ModelMetadata metadata;
+    }
+}
@@ -0,0 +1,15 @@
+package com.hackhub.recommendation;
+
+import java.util.List;
+
+/**
+ * Fits the parameters of a {@link FactorModel} to a set of ratings
+ */
+public interface ModelTrainer {
+
+    /**
+     * Train the model in place and return one report per epoch/sweep run.
+     * The monitor is consulted after every epoch and can stop training early.
+     */
+    List<EpochStats> train(FactorModel model, RatingTriples ratings, TrainingMonitor monitor);
+}
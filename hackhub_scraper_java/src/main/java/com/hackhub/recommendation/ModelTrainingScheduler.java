@@ -5,13 +5,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 /**
  * Automatic model training scheduler
  * Trains the collaborative filtering model automatically at startup and
- * periodically
+ * whenever enough new interactions (or enough time) have accumulated.
+ * New interactions are counted in the database against the published
+ * model's data watermark, so the count survives restarts and agrees across
+ * nodes.
  */
 @Service
 @Slf4j
@@ -23,17 +27,45 @@ public class ModelTrainingScheduler {
     @Autowired
     private LibRecDataExporter dataExporter;
 
+    @Autowired
+    private TrainingJobManager trainingJobManager;
+
     @Value("${librec.auto.train.enabled:true}")
     private boolean autoTrainEnabled;
 
     @Value("${librec.auto.train.min.interactions:20}")
     private int minInteractionsForTraining;
 
+    @Value("${librec.model.load.on.startup:true}")
+    private boolean loadModelOnStartup;
+
+    // Retrain once this many interactions arrived since the last model...
+    @Value("${librec.retrain.min.new.interactions:1000}")
+    private long retrainMinNewInteractions;
+
+    // ...or once the model is this old and anything changed
+    @Value("${librec.retrain.max.age.hours:24}")
+    private long retrainMaxAgeHours;
+
+    // Minimum spacing between triggered runs (debounce for bursts)
+    @Value("${librec.retrain.cooldown.minutes:30}")
+    private long retrainCooldownMinutes;
+
+    private volatile long lastTriggeredAt;
+
     /**
-     * Train model automatically when application starts
+     * Train model automatically when application starts, unless a persisted
+     * model can be loaded. Runs off the startup thread; training itself is a
+     * background job.
      */
+    @Async
     @EventListener(ApplicationReadyEvent.class)
     public void trainModelOnStartup() {
+        if (loadModelOnStartup && collaborativeFilteringService.loadPersistedModel()) {
+            log.info("🎯 Collaborative filtering is ACTIVE from the persisted model, skipping startup training");
+            return;
+        }
+
         if (!autoTrainEnabled) {
             log.info("Automatic model training is disabled");
             return;
@@ -43,31 +75,18 @@ public class ModelTrainingScheduler {
 
         try {
             // Check if we have enough data
-            LibRecDataExporter.DatasetStats stats = dataExporter.getDatasetStats();
+            long interactions = dataExporter.countInteractions();
 
-            if (stats.getTotalInteractions() < minInteractionsForTraining) {
+            if (interactions < minInteractionsForTraining) {
                 log.info("Not enough interactions for training ({} < {}). Skipping automatic training.",
-                        stats.getTotalInteractions(), minInteractionsForTraining);
+                        interactions, minInteractionsForTraining);
                 return;
             }
 
             log.info("Starting automatic model training at startup...");
-            log.info("Dataset: {} interactions, {} users, {} events",
-                    stats.getTotalInteractions(), stats.getUniqueUsers(), stats.getUniqueEvents());
-
-            CollaborativeFilteringService.ModelTrainingResult result = collaborativeFilteringService.trainModel();
-
-            if (result.isSuccess()) {
-                log.info("✅ Model training completed successfully!");
-                log.info("   Algorithm: {}", result.getAlgorithm());
-                log.info("   RMSE: {:.4f}", result.getRmse());
-                log.info("   MAE: {:.4f}", result.getMae());
-                log.info("   Training time: {}ms", result.getTrainingTimeMs());
-                log.info("   Users: {}", result.getNumUsers());
-                log.info("🎯 Collaborative filtering is now ACTIVE for all users!");
-            } else {
-                log.warn("❌ Model training failed at startup");
-            }
+            log.info("Dataset: {} interactions", interactions);
+
+            trainingJobManager.submit("startup");
 
         } catch (Exception e) {
             log.error("Error during automatic model training at startup", e);
@@ -75,46 +94,64 @@ public class ModelTrainingScheduler {
     }
 
     /**
-     * Re-train model automatically every 24 hours
-     * Runs at 2 AM every day
+     * Train when there is no model yet but enough data (a fresh deployment,
+     * or a failed startup run), and re-train when enough interactions arrived
+     * since the last model, or when the model is older than the staleness
+     * limit and anything changed at all. Runs are spaced by a cooldown and
+     * never overlap a running job; between retrains new interactions are
+     * folded in online.
      */
-    @Scheduled(cron = "0 0 2 * * *")
-    public void scheduledModelTraining() {
-        if (!autoTrainEnabled) {
+    @Scheduled(fixedDelayString = "${librec.retrain.check.interval.ms:60000}",
+            initialDelayString = "${librec.retrain.check.interval.ms:60000}")
+    public void checkRetrainingNeeded() {
+        if (!autoTrainEnabled || trainingJobManager.getActiveJob().isPresent()) {
             return;
         }
 
-        log.info("🔄 Starting scheduled model re-training...");
+        long now = System.currentTimeMillis();
+        if (now - lastTriggeredAt < retrainCooldownMinutes * 60_000L) {
+            return;
+        }
 
         try {
-            LibRecDataExporter.DatasetStats stats = dataExporter.getDatasetStats();
-
-            if (stats.getTotalInteractions() < minInteractionsForTraining) {
-                log.info("Not enough interactions for training. Skipping scheduled training.");
+            ModelMetadata metadata = collaborativeFilteringService.getModelMetadata();
+            if (metadata == null) {
+                long interactions = dataExporter.countInteractions();
+                if (interactions < minInteractionsForTraining) {
+                    return;
+                }
+                log.info("🔄 Training: no model yet, {} interactions available", interactions);
+                trainingJobManager.submit("no-model");
+                lastTriggeredAt = now;
                 return;
             }
 
-            CollaborativeFilteringService.ModelTrainingResult result = collaborativeFilteringService.trainModel();
-
-            if (result.isSuccess()) {
-                log.info("✅ Scheduled model re-training completed!");
-                log.info("   RMSE: {:.4f}, MAE: {:.4f}, Time: {}ms",
-                        result.getRmse(), result.getMae(), result.getTrainingTimeMs());
-            } else {
-                log.warn("❌ Scheduled model re-training failed");
+            long pending = dataExporter.countInteractionsSince(metadata);
+            boolean enoughChange = pending >= retrainMinNewInteractions;
+            boolean stale = pending > 0 && now - metadata.getTrainedAt() >= retrainMaxAgeHours * 3_600_000L;
+            if (!enoughChange && !stale) {
+                return;
             }
-
+            if (dataExporter.countInteractions() < minInteractionsForTraining) {
+                return;
+            }
+            log.info("🔄 Re-training: {} new interactions since the last model{}", pending,
+                    stale && !enoughChange ? " (model is stale)" : "");
+            trainingJobManager.submit(stale && !enoughChange ? "stale" : "new-interactions");
+            lastTriggeredAt = now;
+        } catch (IllegalStateException e) {
+            log.debug("Skipping re-training: {}", e.getMessage());
         } catch (Exception e) {
-            log.error("Error during scheduled model training", e);
+            log.error("Error while triggering model re-training", e);
         }
     }
 
     /**
      * Manual trigger for model training (can be called by admin endpoint)
      */
-    public CollaborativeFilteringService.ModelTrainingResult triggerManualTraining() {
+    public TrainingJob triggerManualTraining() {
         log.info("Manual model training triggered");
-        return collaborativeFilteringService.trainModel();
+        return trainingJobManager.submit("manual");
     }
 }
 
@@ -0,0 +1,72 @@
+package com.hackhub.recommendation;
+
+import com.hackhub.service.event.InteractionTrackedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds newly tracked interactions into the live CF model between retrains.
+ * Updates run on one dedicated thread, so the request thread only enqueues
+ * and the copy-on-write rows in the model have a single writer. When the
+ * queue is full, updates are dropped; the next retrain covers them anyway.
+ */
+@Component
+@Slf4j
+public class OnlineModelUpdater {
+
+    @Autowired
+    private CollaborativeFilteringService collaborativeFilteringService;
+
+    @Value("${librec.online.enabled:true}")
+    private boolean enabled;
+
+    @Value("${librec.online.steps:5}")
+    private int steps;
+
+    @Value("${librec.online.learnRate:0.05}")
+    private double learnRate;
+
+    @Value("${librec.online.regularization:0.01}")
+    private double regularization;
+
+    private final ThreadPoolExecutor executor;
+
+    public OnlineModelUpdater(@Value("${librec.online.queue.capacity:10000}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cf-online-update");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInteractionTracked(InteractionTrackedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                collaborativeFilteringService.foldIn(event.getUserId(), event.getEventId(),
+                        event.getImplicitRating(), steps, learnRate, regularization);
+            } catch (RuntimeException e) {
+                log.warn("Online update failed for user {} event {}", event.getUserId(), event.getEventId(), e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,85 @@
+package com.hackhub.recommendation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Random;
+
+/**
+ * Flat (user index, item index, rating) arrays used as SGD training input,
+ * see {@link SparseRatingMatrix#toTriples()}
+ */
+@Getter
+public class RatingTriples {
+
+    private final IdIndex userIndex;
+    private final IdIndex itemIndex;
+    private final int[] users;
+    private final int[] items;
+    private final float[] ratings;
+    private final int size;
+
+    public RatingTriples(IdIndex userIndex, IdIndex itemIndex,
+            int[] users, int[] items, float[] ratings, int size) {
+        this.userIndex = userIndex;
+        this.itemIndex = itemIndex;
+        this.users = users;
+        this.items = items;
+        this.ratings = ratings;
+        this.size = size;
+    }
+
+    /**
+     * Shuffle (seeded) and hold out validationRatio of the triples. Both
+     * halves share this instance's user and item dictionaries.
+     */
+    public Split split(double validationRatio, long seed) {
+        int[] order = new int[size];
+        for (int n = 0; n < size; n++) {
+            order[n] = n;
+        }
+        Random random = new Random(seed);
+        for (int n = size - 1; n > 0; n--) {
+            int swap = random.nextInt(n + 1);
+            int tmp = order[n];
+            order[n] = order[swap];
+            order[swap] = tmp;
+        }
+
+        int validationSize = (int) (size * Math.max(0.0, Math.min(1.0, validationRatio)));
+        int trainSize = size - validationSize;
+        return new Split(slice(order, 0, trainSize), slice(order, trainSize, size));
+    }
+
+    private RatingTriples slice(int[] order, int from, int to) {
+        int length = to - from;
+        int[] sliceUsers = new int[length];
+        int[] sliceItems = new int[length];
+        float[] sliceRatings = new float[length];
+        for (int n = 0; n < length; n++) {
+            int source = order[from + n];
+            sliceUsers[n] = users[source];
+            sliceItems[n] = items[source];
+            sliceRatings[n] = ratings[source];
+        }
+        return new RatingTriples(userIndex, itemIndex, sliceUsers, sliceItems, sliceRatings, length);
+    }
+
+    public double mean() {
+        if (size == 0) {
+            return 3.0;
+        }
+        double sum = 0;
+        for (int n = 0; n < size; n++) {
+            sum += ratings[n];
+        }
+        return sum / size;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Split {
+        private final RatingTriples train;
+        private final RatingTriples validation;
+    }
+}
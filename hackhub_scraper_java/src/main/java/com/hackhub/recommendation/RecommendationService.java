@@ -13,6 +13,8 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,6 +31,9 @@ public class RecommendationService {
     @Autowired
     private UserBasedCFService userBasedCFService;
 
+    @Autowired
+    private ItemBasedCFService itemBasedCFService;
+
     @Autowired
     private InteractionService interactionService;
 
@@ -88,16 +93,32 @@ public class RecommendationService {
     }
 
     /**
-     * Hybrid: Combine content-based + popular
+     * Hybrid: user-based neighbors first, then content-based + popular
      */
     private List<RecommendedItem> getHybridRecommendations(Long userId, int limit, EventType type) {
         List<RecommendedItem> recommendations = new ArrayList<>();
 
-        // 70% Content-based
-        int cbLimit = (int) (limit * 0.7);
+        // Events liked by similar users, while no factor model is trained
+        List<Long> neighborEventIds = userBasedCFService.getRecommendations(userId, limit);
+        if (!neighborEventIds.isEmpty()) {
+            Map<Long, Event> events = eventRepository.findAllById(neighborEventIds).stream()
+                    .collect(Collectors.toMap(Event::getId, e -> e));
+            for (Long eventId : neighborEventIds) {
+                Event event = events.get(eventId);
+                if (event != null) {
+                    recommendations.add(new RecommendedItem(event, 0.0, "Liked by users with similar interests"));
+                }
+            }
+        }
+
+        // 70% of the rest Content-based
+        int cbLimit = (int) ((limit - recommendations.size()) * 0.7);
         List<Event> cbEvents = contentBasedService.getRecommendations(userId, cbLimit);
-        cbEvents.forEach(e -> recommendations.add(
-                new RecommendedItem(e, 0.0, "Based on your profile and interests")));
+        cbEvents.forEach(e -> {
+            if (recommendations.stream().noneMatch(r -> r.getEvent().getId().equals(e.getId()))) {
+                recommendations.add(new RecommendedItem(e, 0.0, "Based on your profile and interests"));
+            }
+        });
 
         // 30% Popular
         int popLimit = limit - recommendations.size();
@@ -152,19 +173,39 @@ public class RecommendationService {
     }
 
     /**
-     * Get similar events to a given event
+     * Get similar events to a given event: item-item neighbors from
+     * co-interactions, topped up with trending events
      */
     public List<RecommendedItem> getSimilarEvents(Long eventId, int limit) {
-        // TODO: Implement with LibRec item-item similarity
-        // For now, return trending events
+        List<ItemNeighborTable.SimilarItem> similarItems = itemBasedCFService.getSimilarItems(eventId, limit);
+
+        List<RecommendedItem> recommendations = new ArrayList<>(limit);
+        if (!similarItems.isEmpty()) {
+            Map<Long, Event> events = eventRepository.findAllById(similarItems.stream()
+                    .map(ItemNeighborTable.SimilarItem::getItemId)
+                    .collect(Collectors.toList()))
+                    .stream()
+                    .collect(Collectors.toMap(Event::getId, e -> e));
+            for (ItemNeighborTable.SimilarItem item : similarItems) {
+                Event event = events.get(item.getItemId());
+                if (event != null) {
+                    recommendations.add(new RecommendedItem(event, item.getSimilarity(),
+                            "Users who interacted with this event also liked"));
+                }
+            }
+        }
 
-        List<Event> similarEvents = interactionService.getTrendingEvents(limit);
+        if (recommendations.size() < limit) {
+            Set<Long> included = recommendations.stream()
+                    .map(r -> r.getEvent().getId())
+                    .collect(Collectors.toSet());
+            included.add(eventId);
+            interactionService.getTrendingEvents(limit + included.size()).stream()
+                    .filter(e -> !included.contains(e.getId()))
+                    .limit(limit - recommendations.size())
+                    .forEach(e -> recommendations.add(new RecommendedItem(e, 0.0, "Similar event")));
+        }
 
-        return similarEvents.stream()
-                .limit(limit)
-                .map(e -> new RecommendedItem(e, 0.0, "Similar event"))
-                .collect(Collectors.toList());
+        return recommendations;
     }
 }
-
-
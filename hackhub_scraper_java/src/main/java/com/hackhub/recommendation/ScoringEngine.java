@@ -0,0 +1,49 @@
+package com.hackhub.recommendation;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Exact top-N scoring of the whole catalog for one user: a SIMD (or scalar)
+ * dot product per item and a bounded heap instead of a full sort
+ */
+public class ScoringEngine {
+
+    private final DotKernel kernel;
+
+    public ScoringEngine(DotKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * Indices of the n items with the highest b_i + x_u . y_i, best first.
+     * The global mean and user bias are the same for every item and do not
+     * change the ranking.
+     *
+     * @param userVector [factors..., bias] of the user, or null to rank an
+     *                   unknown user by item bias only
+     */
+    public int[] topItems(FactorModel model, double[] userVector, int n, IntPredicate excluded) {
+        int k = model.getNumFactors();
+        int numItems = model.getNumItems();
+        double[] itemFactors = model.getItemFactors();
+        double[] itemBiases = model.getItemBiases();
+
+        TopNHeap heap = new TopNHeap(Math.min(n, numItems));
+        for (int i = 0; i < numItems; i++) {
+            double score;
+            double[] row = model.itemOverride(i);
+            if (row != null) {
+                score = model.itemScore(userVector, i);
+            } else {
+                score = itemBiases[i];
+                if (userVector != null) {
+                    score += kernel.dot(userVector, 0, itemFactors, i * k, k);
+                }
+            }
+            if ((!heap.isFull() || score > heap.minScore()) && !excluded.test(i)) {
+                heap.offer(score, i);
+            }
+        }
+        return heap.drainDescending();
+    }
+}
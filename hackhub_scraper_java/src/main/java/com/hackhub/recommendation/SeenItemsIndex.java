@@ -0,0 +1,254 @@
+package com.hackhub.recommendation;
+
+import com.hackhub.repository.InteractionRepository;
+import com.hackhub.service.event.InteractionTrackedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user set of events already interacted with, kept as sorted long[]
+ * arrays. Rebuilt from the training data and patched after each committed
+ * interaction; users not loaded yet are fetched with a single indexed query.
+ * At most librec.seen.max.users users are kept, least recently used evicted
+ * first. Arrays are never modified in place; the lock only guards map
+ * operations, never a query.
+ *
+ * Interactions tracked while a user is being loaded are recorded and merged
+ * into the loaded set, since the query may have started before they
+ * committed. The most recent tracked interactions are also kept (up to
+ * librec.seen.max.recent), so a rebuild from training data can replace
+ * users' sets without losing those the data was read too early to contain.
+ */
+@Component
+@Slf4j
+public class SeenItemsIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    @Autowired
+    private InteractionRepository interactionRepository;
+
+    private final Object lock = new Object();
+
+    // Access-ordered, so the eldest entry is the least recently used; guarded by lock
+    private final LinkedHashMap<Long, long[]> seenByUser;
+
+    // Users with a load in flight; guarded by lock
+    private final Map<Long, PendingLoad> loading = new HashMap<>();
+
+    // Latest tracked interactions, oldest first; guarded by lock
+    private final ArrayDeque<Tracked> recent = new ArrayDeque<>();
+    private final int maxRecent;
+    private long trackedSequence; // guarded by lock
+
+    public SeenItemsIndex(@Value("${librec.seen.max.users:100000}") int maxUsers,
+            @Value("${librec.seen.max.recent:100000}") int maxRecent) {
+        this.maxRecent = maxRecent;
+        this.seenByUser = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Sorted ids of events the user has interacted with
+     */
+    public long[] getSeenItems(Long userId) {
+        PendingLoad pending;
+        synchronized (lock) {
+            long[] seen = seenByUser.get(userId);
+            if (seen != null) {
+                return seen;
+            }
+            pending = loading.computeIfAbsent(userId, id -> new PendingLoad());
+            pending.loaders++;
+        }
+
+        long[] loaded;
+        try {
+            List<Long> eventIds = interactionRepository.findDistinctEventIdsByUserId(userId);
+            loaded = eventIds.isEmpty() ? EMPTY : sortedUnique(eventIds.stream().mapToLong(Long::longValue).toArray());
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                finishLoad(userId, pending);
+            }
+            throw e;
+        }
+
+        // Same critical section as the bookkeeping, so no event falls between
+        synchronized (lock) {
+            finishLoad(userId, pending);
+            long[] merged = union(loaded, pending.tracked);
+            long[] current = seenByUser.get(userId);
+            if (current != null) {
+                merged = union(current, merged);
+            }
+            seenByUser.put(userId, merged);
+            return merged;
+        }
+    }
+
+    private void finishLoad(Long userId, PendingLoad pending) {
+        if (--pending.loaders == 0) {
+            loading.remove(userId);
+        }
+    }
+
+    public static boolean contains(long[] seen, long eventId) {
+        return Arrays.binarySearch(seen, eventId) >= 0;
+    }
+
+    /**
+     * Replace the sets of the users in the training matrix with their rows,
+     * plus interactions tracked with ids above dataWatermarkId (committed
+     * after the matrix's data was read). Deleted or no longer rated
+     * interactions drop out; users absent from the matrix keep their sets
+     * until evicted.
+     *
+     * @param dataWatermarkId highest interaction id in the matrix's data
+     */
+    public void rebuild(SparseRatingMatrix matrix, long dataWatermarkId) {
+        Map<Long, long[]> newer = new HashMap<>();
+        long startSequence;
+        synchronized (lock) {
+            recent.removeIf(tracked -> tracked.interactionId <= dataWatermarkId);
+            for (Tracked tracked : recent) {
+                newer.merge(tracked.userId, new long[] { tracked.eventId }, SeenItemsIndex::union);
+            }
+            startSequence = trackedSequence;
+        }
+
+        int[] rowPtr = matrix.getRowPtr();
+        int[] colIdx = matrix.getColIdx();
+        IdIndex itemIndex = matrix.getItemIndex();
+        for (int u = 0; u < matrix.getNumUsers(); u++) {
+            long[] items = new long[rowPtr[u + 1] - rowPtr[u]];
+            for (int p = rowPtr[u]; p < rowPtr[u + 1]; p++) {
+                items[p - rowPtr[u]] = itemIndex.idAt(colIdx[p]);
+            }
+            Arrays.sort(items); // a CSR row has no duplicates
+            Long userId = matrix.getUserIndex().idAt(u);
+            long[] tracked = newer.get(userId);
+            synchronized (lock) {
+                seenByUser.put(userId, tracked != null ? union(items, tracked) : items);
+            }
+        }
+
+        synchronized (lock) {
+            // Interactions tracked during the loop may have been overwritten
+            Iterator<Tracked> latest = recent.descendingIterator();
+            while (latest.hasNext()) {
+                Tracked tracked = latest.next();
+                if (tracked.sequence <= startSequence) {
+                    break;
+                }
+                long[] seen = seenByUser.get(tracked.userId);
+                if (seen != null && !contains(seen, tracked.eventId)) {
+                    seenByUser.put(tracked.userId, insert(seen, tracked.eventId));
+                }
+            }
+            log.info("Seen-items index holds {} users", seenByUser.size());
+        }
+    }
+
+    /**
+     * Record a committed interaction for users already in the index or being
+     * loaded; others are loaded on first use
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInteractionTracked(InteractionTrackedEvent event) {
+        long eventId = event.getEventId();
+        long interactionId = event.getInteractionId() != null ? event.getInteractionId() : Long.MAX_VALUE;
+        synchronized (lock) {
+            recent.addLast(new Tracked(++trackedSequence, interactionId, event.getUserId(), eventId));
+            if (recent.size() > maxRecent) {
+                recent.removeFirst();
+            }
+            long[] seen = seenByUser.get(event.getUserId());
+            if (seen != null && !contains(seen, eventId)) {
+                seenByUser.put(event.getUserId(), insert(seen, eventId));
+            }
+            PendingLoad pending = loading.get(event.getUserId());
+            if (pending != null && !contains(pending.tracked, eventId)) {
+                pending.tracked = insert(pending.tracked, eventId);
+            }
+        }
+    }
+
+    /**
+     * Concurrent loads of one user and the interactions tracked meanwhile
+     */
+    private static class PendingLoad {
+        private int loaders;
+        private long[] tracked = EMPTY;
+    }
+
+    private static class Tracked {
+        private final long sequence;
+        private final long interactionId;
+        private final Long userId;
+        private final long eventId;
+
+        private Tracked(long sequence, long interactionId, Long userId, long eventId) {
+            this.sequence = sequence;
+            this.interactionId = interactionId;
+            this.userId = userId;
+            this.eventId = eventId;
+        }
+    }
+
+    private static long[] insert(long[] seen, long eventId) {
+        int pos = -Arrays.binarySearch(seen, eventId) - 1;
+        long[] updated = new long[seen.length + 1];
+        System.arraycopy(seen, 0, updated, 0, pos);
+        updated[pos] = eventId;
+        System.arraycopy(seen, pos, updated, pos + 1, seen.length - pos);
+        return updated;
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        long[] merged = new long[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                merged[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                merged[n++] = b[j++];
+            } else {
+                merged[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            merged[n++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[n++] = b[j++];
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    private static long[] sortedUnique(long[] ids) {
+        Arrays.sort(ids);
+        int n = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (n == 0 || ids[i] != ids[n - 1]) {
+                ids[n++] = ids[i];
+            }
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+}
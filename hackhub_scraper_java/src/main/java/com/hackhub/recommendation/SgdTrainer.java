@@ -0,0 +1,154 @@
+package com.hackhub.recommendation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Stochastic gradient descent trainer for {@link FactorModel}.
+ * Ratings are visited in one seeded shuffled order. With more than one
+ * thread that order is split into one shard per worker and trained
+ * Hogwild-style: workers update the shared parameter arrays without locking.
+ * On sparse rating data two workers rarely touch the same user/item row at
+ * the same time, so the result matches the single-threaded run within a
+ * small tolerance.
+ */
+@Slf4j
+public class SgdTrainer implements ModelTrainer {
+
+    private final int numIterations;
+    private final double learnRate;
+    private final double regularization;
+    private final int threads;
+
+    public SgdTrainer(int numIterations, double learnRate, double regularization, int threads) {
+        this.numIterations = numIterations;
+        this.learnRate = learnRate;
+        this.regularization = regularization;
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public List<EpochStats> train(FactorModel model, RatingTriples ratings, TrainingMonitor monitor) {
+        List<EpochStats> epochs = new ArrayList<>(numIterations);
+        int size = ratings.getSize();
+        // One shuffled visit order for both modes, so they differ only in
+        // concurrency
+        int[] order = shuffled(size, new Random(42));
+
+        if (threads == 1 || size < threads * 1000) {
+            for (int iter = 0; iter < numIterations; iter++) {
+                long start = System.nanoTime();
+                double squaredError = runShard(model, ratings, order, 0, size);
+                EpochStats stats = report(iter, squaredError, size, start);
+                epochs.add(stats);
+                if (!monitor.onEpoch(stats)) {
+                    break;
+                }
+            }
+            return epochs;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Callable<Double>> shards = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int from = (int) ((long) size * t / threads);
+                int to = (int) ((long) size * (t + 1) / threads);
+                shards.add(() -> runShard(model, ratings, order, from, to));
+            }
+
+            for (int iter = 0; iter < numIterations; iter++) {
+                long start = System.nanoTime();
+                double squaredError = 0;
+                for (Future<Double> shard : pool.invokeAll(shards)) {
+                    squaredError += shard.get();
+                }
+                EpochStats stats = report(iter, squaredError, size, start);
+                epochs.add(stats);
+                if (!monitor.onEpoch(stats)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("SGD training interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("SGD training failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return epochs;
+    }
+
+    /**
+     * One SGD pass over order[from, to), returns the summed squared error
+     */
+    private double runShard(FactorModel model, RatingTriples ratings, int[] order, int from, int to) {
+        int numFactors = model.getNumFactors();
+        int[] users = ratings.getUsers();
+        int[] items = ratings.getItems();
+        float[] values = ratings.getRatings();
+
+        double[] userFactors = model.getUserFactors();
+        double[] itemFactors = model.getItemFactors();
+        double[] userBiases = model.getUserBiases();
+        double[] itemBiases = model.getItemBiases();
+
+        double squaredError = 0;
+        for (int k = from; k < to; k++) {
+            int n = order[k];
+            int u = users[n];
+            int i = items[n];
+
+            double error = values[n] - model.predict(u, i);
+            squaredError += error * error;
+
+            userBiases[u] += learnRate * (error - regularization * userBiases[u]);
+            itemBiases[i] += learnRate * (error - regularization * itemBiases[i]);
+
+            int uOff = u * numFactors;
+            int iOff = i * numFactors;
+            for (int f = 0; f < numFactors; f++) {
+                double uf = userFactors[uOff + f];
+                double if_ = itemFactors[iOff + f];
+
+                userFactors[uOff + f] += learnRate * (error * if_ - regularization * uf);
+                itemFactors[iOff + f] += learnRate * (error * uf - regularization * if_);
+            }
+        }
+        return squaredError;
+    }
+
+    private EpochStats report(int iter, double squaredError, int size, long startNanos) {
+        double rmse = Math.sqrt(squaredError / size);
+        long wallTimeMs = (System.nanoTime() - startNanos) / 1_000_000;
+        log.debug("Iteration {}/{} - RMSE: {} ({}ms, {} threads)", iter, numIterations, rmse, wallTimeMs, threads);
+        return new EpochStats(iter, rmse, wallTimeMs);
+    }
+
+    private static int[] identity(int size) {
+        int[] order = new int[size];
+        for (int n = 0; n < size; n++) {
+            order[n] = n;
+        }
+        return order;
+    }
+
+    private static int[] shuffled(int size, Random random) {
+        int[] order = identity(size);
+        for (int n = size - 1; n > 0; n--) {
+            int j = random.nextInt(n + 1);
+            int tmp = order[n];
+            order[n] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+}
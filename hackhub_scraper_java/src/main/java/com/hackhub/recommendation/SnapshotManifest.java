@@ -0,0 +1,75 @@
+package com.hackhub.recommendation;
+
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Describes the current interaction snapshot: one compacted base file plus
+ * delta segments appended since, and the high-water marks the next
+ * incremental export continues from. Stored as a properties file and
+ * replaced atomically.
+ */
+@Data
+public class SnapshotManifest {
+    private long sequence;               // last file sequence number used
+    private String base;                 // base snapshot file name
+    private List<String> deltas = new ArrayList<>();
+    private long watermarkId;            // highest interaction id exported
+    private long watermarkTimestamp;     // latest interaction timestamp exported (epoch seconds UTC)
+    private long baseCreatedAt;          // when the base was last exported in full (epoch ms)
+
+    public static SnapshotManifest read(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+
+        SnapshotManifest manifest = new SnapshotManifest();
+        try {
+            manifest.setSequence(Long.parseLong(properties.getProperty("sequence")));
+            manifest.setBase(properties.getProperty("base"));
+            String deltas = properties.getProperty("deltas", "");
+            if (!deltas.isEmpty()) {
+                manifest.setDeltas(new ArrayList<>(Arrays.asList(deltas.split(","))));
+            }
+            manifest.setWatermarkId(Long.parseLong(properties.getProperty("watermarkId")));
+            manifest.setWatermarkTimestamp(Long.parseLong(properties.getProperty("watermarkTimestamp")));
+            manifest.setBaseCreatedAt(Long.parseLong(properties.getProperty("baseCreatedAt")));
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid snapshot manifest " + path + ": " + e.getMessage(), e);
+        }
+        if (manifest.getBase() == null) {
+            throw new IOException("Snapshot manifest without a base: " + path);
+        }
+        return manifest;
+    }
+
+    public void write(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("sequence", Long.toString(sequence));
+        properties.setProperty("base", base);
+        properties.setProperty("deltas", String.join(",", deltas));
+        properties.setProperty("watermarkId", Long.toString(watermarkId));
+        properties.setProperty("watermarkTimestamp", Long.toString(watermarkTimestamp));
+        properties.setProperty("baseCreatedAt", Long.toString(baseCreatedAt));
+
+        Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "Interaction snapshot manifest");
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,73 @@
+package com.hackhub.recommendation;
+
+/**
+ * Reusable scatter-add accumulator over a dense index range with three sums
+ * per slot. Slots are stamped with a generation instead of being cleared, so
+ * each reset and the walk over touched slots cost O(slots touched), not
+ * O(size). Not thread-safe; keep one per thread.
+ */
+public class SparseAccumulator {
+
+    private double[] a = new double[0];
+    private double[] b = new double[0];
+    private double[] c = new double[0];
+    private int[] stamp = new int[0];
+    private int generation;
+    private int[] touched = new int[0];
+    private int touchedCount;
+
+    /**
+     * Start a new accumulation over indices [0, size)
+     */
+    public SparseAccumulator reset(int size) {
+        touchedCount = 0;
+        if (stamp.length < size || ++generation == 0) {
+            a = new double[size];
+            b = new double[size];
+            c = new double[size];
+            stamp = new int[size];
+            touched = new int[size];
+            generation = 1;
+        }
+        return this;
+    }
+
+    public void add(int index, double da, double db, double dc) {
+        if (stamp[index] != generation) {
+            stamp[index] = generation;
+            a[index] = 0;
+            b[index] = 0;
+            c[index] = 0;
+            touched[touchedCount++] = index;
+        }
+        a[index] += da;
+        b[index] += db;
+        c[index] += dc;
+    }
+
+    /**
+     * Number of distinct indices added since the last reset
+     */
+    public int size() {
+        return touchedCount;
+    }
+
+    /**
+     * The n-th distinct index added, in first-touch order
+     */
+    public int index(int n) {
+        return touched[n];
+    }
+
+    public double a(int index) {
+        return a[index];
+    }
+
+    public double b(int index) {
+        return b[index];
+    }
+
+    public double c(int index) {
+        return c[index];
+    }
+}
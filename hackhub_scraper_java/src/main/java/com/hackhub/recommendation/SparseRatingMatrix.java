@@ -0,0 +1,217 @@
+package com.hackhub.recommendation;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sparse user x item rating matrix stored both row-wise (CSR, one
+ * row per user) and column-wise (CSC, one column per item) in primitive
+ * arrays. Entries of a row are sorted by item index and entries of a column
+ * by user index, so two rows (or columns) can be intersected with a merge
+ * join. Dense indices come from the user and item {@link IdIndex}.
+ */
+@Getter
+public class SparseRatingMatrix {
+
+    private final IdIndex userIndex;
+    private final IdIndex itemIndex;
+
+    // CSR: row u spans [rowPtr[u], rowPtr[u + 1]) of colIdx/values
+    private final int[] rowPtr;
+    private final int[] colIdx;
+    private final float[] values;
+
+    // CSC: column i spans [colPtr[i], colPtr[i + 1]) of rowIdx/colValues
+    private final int[] colPtr;
+    private final int[] rowIdx;
+    private final float[] colValues;
+
+    // Interactions read before duplicate (user, item) pairs were collapsed
+    private final int numInteractions;
+
+    private SparseRatingMatrix(IdIndex userIndex, IdIndex itemIndex,
+            int[] rowPtr, int[] colIdx, float[] values, int numInteractions) {
+        this.userIndex = userIndex;
+        this.itemIndex = itemIndex;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+        this.numInteractions = numInteractions;
+
+        int numItems = itemIndex.size();
+        int nnz = colIdx.length;
+        colPtr = new int[numItems + 1];
+        for (int p = 0; p < nnz; p++) {
+            colPtr[colIdx[p] + 1]++;
+        }
+        for (int i = 0; i < numItems; i++) {
+            colPtr[i + 1] += colPtr[i];
+        }
+        rowIdx = new int[nnz];
+        colValues = new float[nnz];
+        int[] cursor = Arrays.copyOf(colPtr, numItems);
+        for (int u = 0; u < rowPtr.length - 1; u++) {
+            for (int p = rowPtr[u]; p < rowPtr[u + 1]; p++) {
+                int q = cursor[colIdx[p]]++;
+                rowIdx[q] = u;
+                colValues[q] = values[p];
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder(1024);
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    /**
+     * Matrix over the triples' user and item dictionaries (e.g. one half of
+     * a train/validation split); the triples must not repeat a pair
+     */
+    public static SparseRatingMatrix of(RatingTriples triples) {
+        return compress(triples.getUserIndex(), triples.getItemIndex(),
+                triples.getUsers(), triples.getItems(), triples.getRatings(), triples.getSize());
+    }
+
+    public int getNumUsers() {
+        return rowPtr.length - 1;
+    }
+
+    public int getNumItems() {
+        return colPtr.length - 1;
+    }
+
+    public int getNumRatings() {
+        return colIdx.length;
+    }
+
+    /**
+     * Dense row of a user id, or -1
+     */
+    public int row(long userId) {
+        return userIndex.indexOf(userId);
+    }
+
+    /**
+     * A user's ratings by item index, as a view of the CSR arrays
+     */
+    public SparseVector rowVector(int user) {
+        return SparseVector.view(colIdx, values, rowPtr[user], rowPtr[user + 1]);
+    }
+
+    /**
+     * An item's ratings by user index, as a view of the CSC arrays
+     */
+    public SparseVector columnVector(int item) {
+        return SparseVector.view(rowIdx, colValues, colPtr[item], colPtr[item + 1]);
+    }
+
+    /**
+     * Flat (user, item, rating) view for trainers that shuffle or split
+     */
+    public RatingTriples toTriples() {
+        int nnz = getNumRatings();
+        int[] users = new int[nnz];
+        for (int u = 0; u < getNumUsers(); u++) {
+            Arrays.fill(users, rowPtr[u], rowPtr[u + 1], u);
+        }
+        return new RatingTriples(userIndex, itemIndex, users, colIdx.clone(), values.clone(), nnz);
+    }
+
+    /**
+     * Group entries by row, sort each row by column and keep the last value
+     * written for a repeated (row, column) pair
+     */
+    private static SparseRatingMatrix compress(IdIndex userIndex, IdIndex itemIndex,
+            int[] users, int[] items, float[] ratings, int size) {
+        int numUsers = userIndex.size();
+        int[] counts = new int[numUsers + 1];
+        for (int n = 0; n < size; n++) {
+            counts[users[n] + 1]++;
+        }
+        int maxRow = 0;
+        for (int u = 0; u < numUsers; u++) {
+            maxRow = Math.max(maxRow, counts[u + 1]);
+            counts[u + 1] += counts[u];
+        }
+
+        // Stable bucket by row, so insertion order survives within a row
+        int[] order = new int[size];
+        int[] cursor = Arrays.copyOf(counts, numUsers);
+        for (int n = 0; n < size; n++) {
+            order[cursor[users[n]]++] = n;
+        }
+
+        int[] rowPtr = new int[numUsers + 1];
+        int[] colIdx = new int[size];
+        float[] values = new float[size];
+        long[] keys = new long[maxRow];
+        int nnz = 0;
+        for (int u = 0; u < numUsers; u++) {
+            int start = counts[u];
+            int length = counts[u + 1] - start;
+            // Sort by (column, arrival) packed into one long
+            for (int k = 0; k < length; k++) {
+                keys[k] = ((long) items[order[start + k]] << 32) | k;
+            }
+            Arrays.sort(keys, 0, length);
+            for (int k = 0; k < length; k++) {
+                int col = (int) (keys[k] >>> 32);
+                if (k + 1 < length && (int) (keys[k + 1] >>> 32) == col) {
+                    continue; // a later write of the same pair wins
+                }
+                colIdx[nnz] = col;
+                values[nnz] = ratings[order[start + (int) keys[k]]];
+                nnz++;
+            }
+            rowPtr[u + 1] = nnz;
+        }
+
+        return new SparseRatingMatrix(userIndex, itemIndex, rowPtr,
+                nnz == size ? colIdx : Arrays.copyOf(colIdx, nnz),
+                nnz == size ? values : Arrays.copyOf(values, nnz),
+                size);
+    }
+
+    /**
+     * Accumulates (user id, item id, rating) entries in growable primitive
+     * arrays, assigning dense indices in encounter order
+     */
+    public static class Builder {
+        private final IdIndex userIndex = new IdIndex();
+        private final IdIndex itemIndex = new IdIndex();
+        private int[] users;
+        private int[] items;
+        private float[] ratings;
+        private int size;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            users = new int[capacity];
+            items = new int[capacity];
+            ratings = new float[capacity];
+        }
+
+        public Builder add(long userId, long itemId, double rating) {
+            if (size == users.length) {
+                int capacity = size + (size >> 1);
+                users = Arrays.copyOf(users, capacity);
+                items = Arrays.copyOf(items, capacity);
+                ratings = Arrays.copyOf(ratings, capacity);
+            }
+            users[size] = userIndex.add(userId);
+            items[size] = itemIndex.add(itemId);
+            ratings[size] = (float) rating;
+            size++;
+            return this;
+        }
+
+        public SparseRatingMatrix build() {
+            return compress(userIndex, itemIndex, users, items, ratings, size);
+        }
+    }
+}
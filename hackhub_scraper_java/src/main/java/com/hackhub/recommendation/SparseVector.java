@@ -0,0 +1,137 @@
+package com.hackhub.recommendation;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sparse vector: entries [from, to) of a sorted int[] of dense
+ * indices and a parallel float[] of values. Usually a view of one CSR row
+ * or CSC column of a {@link SparseRatingMatrix}, so wrapping one copies
+ * nothing.
+ *
+ * Products between two vectors are merge joins over the sorted indices:
+ * no hashing and no boxing per comparison.
+ */
+public final class SparseVector {
+
+    public static final SparseVector EMPTY = new SparseVector(new int[0], new float[0], 0, 0);
+
+    private final int[] indices;
+    private final float[] values;
+    private final int from;
+    private final int to;
+
+    private SparseVector(int[] indices, float[] values, int from, int to) {
+        this.indices = indices;
+        this.values = values;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * View of entries [from, to); indices there must be strictly increasing
+     */
+    public static SparseVector view(int[] indices, float[] values, int from, int to) {
+        return new SparseVector(indices, values, from, to);
+    }
+
+    /**
+     * Vector over unsorted (index, value) pairs; for a repeated index the
+     * last value wins
+     */
+    public static SparseVector of(int[] indices, float[] values, int size) {
+        long[] keys = new long[size];
+        for (int n = 0; n < size; n++) {
+            keys[n] = ((long) indices[n] << 32) | n;
+        }
+        Arrays.sort(keys);
+
+        int[] sortedIndices = new int[size];
+        float[] sortedValues = new float[size];
+        int count = 0;
+        for (int n = 0; n < size; n++) {
+            int index = (int) (keys[n] >>> 32);
+            if (n + 1 < size && (int) (keys[n + 1] >>> 32) == index) {
+                continue; // a later value for the same index wins
+            }
+            sortedIndices[count] = index;
+            sortedValues[count++] = values[(int) keys[n]];
+        }
+        return new SparseVector(sortedIndices, sortedValues, 0, count);
+    }
+
+    public int size() {
+        return to - from;
+    }
+
+    /**
+     * Dense index of the n-th non-zero entry
+     */
+    public int index(int n) {
+        return indices[from + n];
+    }
+
+    public float value(int n) {
+        return values[from + n];
+    }
+
+    public double norm() {
+        double sum = 0;
+        for (int p = from; p < to; p++) {
+            sum += values[p] * values[p];
+        }
+        return Math.sqrt(sum);
+    }
+
+    public boolean contains(int index) {
+        return Arrays.binarySearch(indices, from, to, index) >= 0;
+    }
+
+    public double dot(SparseVector other) {
+        double dot = 0;
+        int p = from;
+        int q = other.from;
+        while (p < to && q < other.to) {
+            int a = indices[p];
+            int b = other.indices[q];
+            if (a < b) {
+                p++;
+            } else if (a > b) {
+                q++;
+            } else {
+                dot += values[p++] * other.values[q++];
+            }
+        }
+        return dot;
+    }
+
+    /**
+     * Cosine similarity restricted to the indices both vectors have (norms
+     * over the common entries only), in one merge pass
+     */
+    public double overlapCosine(SparseVector other) {
+        double dot = 0;
+        double norm1 = 0;
+        double norm2 = 0;
+        int p = from;
+        int q = other.from;
+        while (p < to && q < other.to) {
+            int a = indices[p];
+            int b = other.indices[q];
+            if (a < b) {
+                p++;
+            } else if (a > b) {
+                q++;
+            } else {
+                double value1 = values[p++];
+                double value2 = other.values[q++];
+                dot += value1 * value2;
+                norm1 += value1 * value1;
+                norm2 += value2 * value2;
+            }
+        }
+        if (norm1 == 0 || norm2 == 0) {
+            return 0.0;
+        }
+        return dot / (Math.sqrt(norm1) * Math.sqrt(norm2));
+    }
+}
@@ -0,0 +1,90 @@
+package com.hackhub.recommendation;
+
+/**
+ * Fixed-capacity min-heap of (score, index) pairs that keeps the N highest
+ * scores seen, on primitive arrays
+ */
+public class TopNHeap {
+
+    private final double[] scores;
+    private final int[] indices;
+    private int size;
+
+    public TopNHeap(int capacity) {
+        this.scores = new double[Math.max(capacity, 0)];
+        this.indices = new int[Math.max(capacity, 0)];
+    }
+
+    /**
+     * Offer a candidate; it is kept only while it is among the N best
+     */
+    public void offer(double score, int index) {
+        if (size < scores.length) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                scores[i] = scores[parent];
+                indices[i] = indices[parent];
+                i = parent;
+            }
+            scores[i] = score;
+            indices[i] = index;
+        } else if (size > 0 && score > scores[0]) {
+            siftDown(score, index);
+        }
+    }
+
+    /**
+     * Lowest score currently kept (only meaningful once full)
+     */
+    public double minScore() {
+        return scores[0];
+    }
+
+    public boolean isFull() {
+        return size == scores.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Empty the heap, returning indices best first
+     */
+    public int[] drainDescending() {
+        int[] result = new int[size];
+        for (int n = size - 1; n >= 0; n--) {
+            result[n] = indices[0];
+            size--;
+            if (size > 0) {
+                siftDown(scores[size], indices[size]);
+            }
+        }
+        return result;
+    }
+
+    private void siftDown(double score, int index) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[child + 1] < scores[child]) {
+                child++;
+            }
+            if (scores[child] >= score) {
+                break;
+            }
+            scores[i] = scores[child];
+            indices[i] = indices[child];
+            i = child;
+        }
+        scores[i] = score;
+        indices[i] = index;
+    }
+}
@@ -0,0 +1,89 @@
+package com.hackhub.recommendation;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One background training run, as reported by the job endpoints
+ */
+@Getter
+public class TrainingJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED,
+        SKIPPED; // another node holds the training lease
+
+        public boolean isActive() {
+            return this == QUEUED || this == RUNNING;
+        }
+    }
+
+    private final String id;
+    private final String trigger; // startup, scheduled, manual, tune, ...
+    private final long createdAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile boolean cancelRequested;
+    private volatile String error;
+    private volatile CollaborativeFilteringService.ModelTrainingResult result;
+    private volatile HyperparameterSearchService.SearchResult searchResult; // tune jobs only
+    private volatile String phase; // validate, refit or search; null until started
+    private volatile int phaseSteps; // epochs, or trials for a search
+    private volatile int phaseDone;
+    private final List<EpochStats> epochs = new CopyOnWriteArrayList<>();
+
+    @JsonIgnore
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    TrainingJob(String id, String trigger) {
+        this.id = id;
+        this.trigger = trigger;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Fraction of the current phase done: epochs of its budget for validate
+     * (early stopping may finish sooner) and refit, trials for a search
+     */
+    public double getProgress() {
+        if (status == Status.SUCCEEDED) {
+            return 1.0;
+        }
+        return phaseSteps <= 0 ? 0.0 : Math.min(1.0, (double) phaseDone / phaseSteps);
+    }
+
+    void start() {
+        startedAt = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    void finish(Status finalStatus, CollaborativeFilteringService.ModelTrainingResult trainingResult, String message) {
+        result = trainingResult;
+        error = message;
+        finishedAt = System.currentTimeMillis();
+        status = finalStatus;
+    }
+
+    void report(String phaseName, int done, int steps) {
+        phaseDone = done;
+        phaseSteps = steps;
+        phase = phaseName;
+    }
+
+    void stepDone() {
+        phaseDone++;
+    }
+
+    void setSearchResult(HyperparameterSearchService.SearchResult searchResult) {
+        this.searchResult = searchResult;
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+}
@@ -0,0 +1,249 @@
+package com.hackhub.recommendation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs CF training jobs (and hyperparameter searches, which train and may
+ * publish too) one at a time on a dedicated background thread.
+ * Each job has an id, reports per-epoch progress (also streamed to SSE
+ * subscribers) and can be cancelled between epochs. Submitting while a job
+ * is queued or running is rejected. In a multi-node deployment only the
+ * holder of the {@link TrainingLeaseService} lease trains; other nodes mark
+ * the job SKIPPED and pick up the published model file instead.
+ */
+@Service
+@Slf4j
+public class TrainingJobManager {
+
+    private static final int MAX_FINISHED_JOBS = 20;
+
+    @Autowired
+    private CollaborativeFilteringService collaborativeFilteringService;
+
+    @Autowired
+    private TrainingLeaseService trainingLeaseService;
+
+    @Autowired
+    private HyperparameterSearchService hyperparameterSearchService;
+
+    // How long an SSE progress stream stays open
+    @Value("${librec.training.sse.timeout.ms:1800000}")
+    private long sseTimeoutMs;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cf-training");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Most recent jobs, oldest first; guarded by this
+    private final LinkedHashMap<String, TrainingJob> jobs = new LinkedHashMap<>();
+    private TrainingJob activeJob;
+
+    /**
+     * Queue a training run
+     *
+     * @throws IllegalStateException if a job is already queued or running
+     */
+    public synchronized TrainingJob submit(String trigger) {
+        return enqueue(trigger, job -> {
+            CollaborativeFilteringService.ModelTrainingResult result =
+                    collaborativeFilteringService.trainModel(new TrainingMonitor() {
+                        @Override
+                        public boolean onEpoch(EpochStats stats) {
+                            return TrainingJobManager.this.onEpoch(job, stats);
+                        }
+
+                        @Override
+                        public void onPhase(String phase, int maxEpochs) {
+                            job.report(phase, 0, maxEpochs);
+                        }
+                    });
+            finish(job, result.isSuccess() ? TrainingJob.Status.SUCCEEDED : TrainingJob.Status.FAILED, result,
+                    result.isSuccess() ? null : "Training failed, see server logs");
+        });
+    }
+
+    /**
+     * Queue a hyperparameter search; its result is reported on the job,
+     * progress counts completed trials and it can be cancelled
+     *
+     * @param promote publish the best model (see
+     *                {@link HyperparameterSearchService#search})
+     * @throws IllegalStateException if a job is already queued or running
+     */
+    public synchronized TrainingJob submitSearch(boolean promote) {
+        return enqueue("tune", job -> {
+            job.setSearchResult(hyperparameterSearchService.search(promote, job::isCancelRequested,
+                    (completed, total) -> job.report("search", completed, total)));
+            finish(job, TrainingJob.Status.SUCCEEDED, null, null);
+        });
+    }
+
+    private TrainingJob enqueue(String trigger, JobBody body) {
+        if (activeJob != null && activeJob.getStatus().isActive()) {
+            throw new IllegalStateException("Training job " + activeJob.getId() + " is already "
+                    + activeJob.getStatus());
+        }
+
+        TrainingJob job = new TrainingJob(UUID.randomUUID().toString(), trigger);
+        activeJob = job;
+        jobs.put(job.getId(), job);
+        while (jobs.size() > MAX_FINISHED_JOBS) {
+            String oldest = jobs.keySet().iterator().next();
+            if (jobs.get(oldest).getStatus().isActive()) {
+                break;
+            }
+            jobs.remove(oldest);
+        }
+
+        executor.execute(() -> run(job, body));
+        log.info("Queued training job {} ({})", job.getId(), trigger);
+        return job;
+    }
+
+    public synchronized Optional<TrainingJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public synchronized Optional<TrainingJob> getActiveJob() {
+        return Optional.ofNullable(activeJob).filter(job -> job.getStatus().isActive());
+    }
+
+    /**
+     * Recent jobs, newest first
+     */
+    public synchronized List<TrainingJob> getJobs() {
+        List<TrainingJob> recent = new ArrayList<>(jobs.values());
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    /**
+     * Ask a job to stop after its current epoch; nothing is published
+     *
+     * @return false if the job is unknown or already finished
+     */
+    public boolean cancel(String id) {
+        Optional<TrainingJob> job = getJob(id);
+        if (job.isEmpty() || !job.get().getStatus().isActive()) {
+            return false;
+        }
+        job.get().requestCancel();
+        log.info("Cancellation requested for training job {}", id);
+        return true;
+    }
+
+    /**
+     * Stream a job's epochs (past and future) as "epoch" events followed by a
+     * final "status" event
+     */
+    public SseEmitter subscribe(TrainingJob job) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emitter.onCompletion(() -> job.getSubscribers().remove(emitter));
+        emitter.onTimeout(() -> job.getSubscribers().remove(emitter));
+        emitter.onError(e -> job.getSubscribers().remove(emitter));
+
+        job.getSubscribers().add(emitter);
+        try {
+            for (EpochStats epoch : job.getEpochs()) {
+                emitter.send(SseEmitter.event().name("epoch").data(epoch));
+            }
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        // The job may have finished before the subscriber was registered
+        if (!job.getStatus().isActive()) {
+            complete(job, emitter);
+        }
+        return emitter;
+    }
+
+    private void run(TrainingJob job, JobBody body) {
+        if (job.isCancelRequested()) {
+            finish(job, TrainingJob.Status.CANCELLED, null, "Cancelled before start");
+            return;
+        }
+
+        if (!trainingLeaseService.tryAcquire()) {
+            finish(job, TrainingJob.Status.SKIPPED, null, "Another node holds the training lease");
+            return;
+        }
+
+        job.start();
+        log.info("Training job {} started on {}", job.getId(), trainingLeaseService.getNodeId());
+        try {
+            body.run(job);
+        } catch (CancellationException e) {
+            finish(job, TrainingJob.Status.CANCELLED, null, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.error("Training job {} failed", job.getId(), e);
+            finish(job, TrainingJob.Status.FAILED, null, e.getMessage());
+        } finally {
+            trainingLeaseService.release();
+        }
+    }
+
+    private boolean onEpoch(TrainingJob job, EpochStats stats) {
+        job.getEpochs().add(stats);
+        job.stepDone();
+        for (SseEmitter emitter : job.getSubscribers()) {
+            try {
+                emitter.send(SseEmitter.event().name("epoch").data(stats));
+            } catch (IOException | IllegalStateException e) {
+                job.getSubscribers().remove(emitter); // client went away
+            }
+        }
+        return !job.isCancelRequested();
+    }
+
+    private void finish(TrainingJob job, TrainingJob.Status status,
+            CollaborativeFilteringService.ModelTrainingResult result, String error) {
+        job.finish(status, result, error);
+        if (result != null && result.isSuccess()) {
+            log.info("Training job {} finished: {} - {} RMSE: {}, MAE: {}, AUC: {}, {} users, {}ms", job.getId(),
+                    status, result.getAlgorithm(), result.getRmse(), result.getMae(), result.getAuc(),
+                    result.getNumUsers(), result.getTrainingTimeMs());
+        } else {
+            log.info("Training job {} finished: {}", job.getId(), status);
+        }
+        for (SseEmitter emitter : job.getSubscribers()) {
+            complete(job, emitter);
+        }
+    }
+
+    private void complete(TrainingJob job, SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(job));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Work of a job, run on the training thread while holding the lease;
+     * must finish the job unless it throws
+     */
+    private interface JobBody {
+        void run(TrainingJob job) throws IOException;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        getActiveJob().ifPresent(TrainingJob::requestCancel);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,197 @@
+package com.hackhub.recommendation;
+
+import com.hackhub.model.TrainingLease;
+import com.hackhub.repository.TrainingLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Database lease that elects one replica to train and publish the CF model.
+ * Acquiring is a single conditional UPDATE on the training_leases row, so it
+ * is atomic across nodes; the holder renews it while training and releases
+ * it afterwards. A crashed holder's lease simply expires.
+ *
+ * Renewal runs on a dedicated thread, so neither a long training run nor
+ * other scheduled jobs can delay it past expiry. Since a stalled node can
+ * still lose the lease, the trainer calls {@link #verify()} right before
+ * publishing.
+ */
+@Service
+@Slf4j
+public class TrainingLeaseService {
+
+    private static final String LEASE_NAME = "cf-training";
+
+    @Autowired
+    private TrainingLeaseRepository leaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${librec.lease.enabled:true}")
+    private boolean enabled;
+
+    // Must comfortably exceed the renewal interval plus clock skew between nodes
+    @Value("${librec.lease.duration.seconds:300}")
+    private long leaseSeconds;
+
+    private final String nodeId;
+    private volatile boolean held;
+
+    private final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "training-lease");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> renewal; // guarded by this
+
+    public TrainingLeaseService(@Value("${librec.node.id:}") String nodeId) {
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return true if this node now holds the training lease
+     */
+    public boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        ensureLeaseRow();
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = transaction().execute(status ->
+                leaseRepository.tryAcquire(LEASE_NAME, nodeId, now, now.plusSeconds(leaseSeconds)));
+        held = updated != null && updated > 0;
+        if (held) {
+            log.info("Node {} acquired the training lease", nodeId);
+            scheduleRenewal();
+        } else {
+            log.info("Training lease is held by another node, {} will not train", nodeId);
+        }
+        return held;
+    }
+
+    /**
+     * Confirm, with the same conditional UPDATE as a renewal, that this node
+     * still holds the lease, extending it. Call before acting as the holder.
+     *
+     * @return false if another node took the lease over
+     */
+    public boolean verify() {
+        if (!enabled) {
+            return true;
+        }
+        if (!held) {
+            return false;
+        }
+        try {
+            renew();
+        } catch (RuntimeException e) {
+            log.warn("Could not verify the training lease: {}", e.getMessage());
+            return false;
+        }
+        return held;
+    }
+
+    /**
+     * Extend the lease while a training run holds it
+     */
+    private void renew() {
+        if (!held) {
+            return;
+        }
+        Integer updated = transaction().execute(status ->
+                leaseRepository.renew(LEASE_NAME, nodeId, LocalDateTime.now().plusSeconds(leaseSeconds)));
+        if (updated == null || updated == 0) {
+            held = false;
+            cancelRenewal();
+            log.warn("Node {} lost the training lease", nodeId);
+        }
+    }
+
+    public void release() {
+        if (!enabled || !held) {
+            return;
+        }
+        held = false;
+        cancelRenewal();
+        try {
+            transaction().execute(status -> leaseRepository.release(LEASE_NAME, nodeId, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            log.warn("Could not release the training lease, it will expire: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        release();
+        renewer.shutdownNow();
+    }
+
+    private synchronized void scheduleRenewal() {
+        cancelRenewal();
+        long periodMs = leaseSeconds * 1000 / 3;
+        renewal = renewer.scheduleWithFixedDelay(() -> {
+            try {
+                renew();
+            } catch (RuntimeException e) {
+                // Retried next period; the lease only lapses after leaseSeconds
+                log.warn("Could not renew the training lease: {}", e.getMessage());
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void cancelRenewal() {
+        if (renewal != null) {
+            renewal.cancel(false);
+            renewal = null;
+        }
+    }
+
+    /**
+     * Create the lease row on first use; a concurrent insert by another node
+     * is fine
+     */
+    private void ensureLeaseRow() {
+        if (leaseRepository.existsById(LEASE_NAME)) {
+            return;
+        }
+        try {
+            transaction().execute(status ->
+                    leaseRepository.saveAndFlush(new TrainingLease(LEASE_NAME, null, LocalDateTime.now())));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Training lease row created by another node");
+        }
+    }
+
+    private TransactionTemplate transaction() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,25 @@
+package com.hackhub.recommendation;
+
+/**
+ * Observes training progress after every epoch/sweep
+ */
+public interface TrainingMonitor {
+
+    TrainingMonitor NONE = stats -> true;
+
+    /**
+     * Called after each epoch; may add validation metrics to stats
+     *
+     * @return false to stop training early
+     */
+    boolean onEpoch(EpochStats stats);
+
+    /**
+     * Called when training enters a phase: "validate" (early-stopped run on
+     * the training split) or "refit" (fixed epochs on all ratings)
+     *
+     * @param maxEpochs epoch budget of the phase
+     */
+    default void onPhase(String phase, int maxEpochs) {
+    }
+}
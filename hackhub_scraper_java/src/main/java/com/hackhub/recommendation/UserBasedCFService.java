@@ -1,167 +1,365 @@
 package com.hackhub.recommendation;
 
-import com.hackhub.model.Interaction;
 import com.hackhub.repository.InteractionRepository;
+import com.hackhub.service.event.InteractionTrackedEvent;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * User-Based Collaborative Filtering using Cosine Similarity
  * Inspired by LibRec's ItemKNN algorithm
+ *
+ * Neighbors come from a {@link UserNeighborGraph} built once the application
+ * is ready and rebuilt periodically, on a dedicated thread so the shared
+ * Spring scheduler is never held up; until the first build finishes there
+ * are no results and callers fall back. Between
+ * rebuilds, a user who interacts gets a patched row and neighbor
+ * list computed against the current graph; other users' lists that should
+ * now include them catch up on the next rebuild. Serving is a neighbor
+ * lookup plus a weighted merge of the neighbors' rows.
+ *
+ * With librec.userknn.lsh.enabled, neighbor candidates come from MinHash LSH
+ * buckets instead of all co-rating users; bands and rows set the recall /
+ * precision trade-off against exact KNN.
  */
 @Service
 @Slf4j
 public class UserBasedCFService {
 
+    private static final ThreadLocal<SparseAccumulator> ACCUMULATOR =
+            ThreadLocal.withInitial(SparseAccumulator::new);
+
     @Autowired
     private InteractionRepository interactionRepository;
 
     @Autowired
     private LibRecDataExporter dataExporter;
 
-    /**
-     * Get recommendations using user-based collaborative filtering
-     */
-    public List<Long> getRecommendations(Long userId, int topN) {
-        // 1. Get user-item matrix
-        Map<Long, Map<Long, Double>> matrix = dataExporter.exportUserItemMatrix();
+    @Value("${librec.userknn.neighbors:20}")
+    private int numNeighbors;
 
-        if (!matrix.containsKey(userId)) {
-            return Collections.emptyList();
-        }
+    // 0 = one thread per available core
+    @Value("${librec.userknn.threads:0}")
+    private int buildThreads;
 
-        // 2. Find similar users
-        List<SimilarUser> similarUsers = findSimilarUsers(userId, matrix, 20);
+    @Value("${librec.userknn.incremental:true}")
+    private boolean incremental;
 
-        if (similarUsers.isEmpty()) {
-            return Collections.emptyList();
-        }
+    // Approximate candidates for large user bases; exact re-scoring either way
+    @Value("${librec.userknn.lsh.enabled:false}")
+    private boolean lshEnabled;
+
+    // More bands = higher recall, more rows per band = higher precision
+    @Value("${librec.userknn.lsh.bands:40}")
+    private int lshBands;
+
+    @Value("${librec.userknn.lsh.rows:2}")
+    private int lshRows;
+
+    @Value("${librec.userknn.rebuild.interval.ms:3600000}")
+    private long rebuildIntervalMs;
 
-        // 3. Get items rated highly by similar users
-        Map<Long, Double> predictions = predictRatings(userId, similarUsers, matrix);
+    private volatile UserNeighborGraph graph;
 
-        // 4. Get items user hasn't interacted with
-        Set<Long> userInteractedItems = matrix.get(userId).keySet();
+    // Users whose interactions changed since the graph was built; guarded by
+    // patchLock for writes, read without locking
+    private final Map<Long, UserPatch> patches = new ConcurrentHashMap<>();
+    private final Object patchLock = new Object();
+    private long patchSequence;
 
-        // 5. Sort by predicted rating and filter
-        return predictions.entrySet().stream()
-                .filter(entry -> !userInteractedItems.contains(entry.getKey()))
-                .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
-                .limit(topN)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+    private final ThreadPoolExecutor patchExecutor;
+
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "userknn-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UserBasedCFService(@Value("${librec.userknn.queue.capacity:10000}") int queueCapacity) {
+        this.patchExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "userknn-patch");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
     }
 
     /**
-     * Find users similar to target user using cosine similarity
+     * Get recommendations using user-based collaborative filtering
      */
-    private List<SimilarUser> findSimilarUsers(Long targetUserId,
-            Map<Long, Map<Long, Double>> matrix,
-            int topN) {
-        Map<Long, Double> targetUserRatings = matrix.get(targetUserId);
-        if (targetUserRatings == null || targetUserRatings.isEmpty()) {
+    public List<Long> getRecommendations(Long userId, int topN) {
+        UserNeighborGraph current = graph;
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        SparseRatingMatrix matrix = current.getMatrix();
+        UserPatch patch = patches.get(userId);
+
+        // 1. Find the user's row and similar users
+        int user = matrix.row(userId);
+        SparseVector row;
+        UserNeighborGraph.Neighbors neighbors;
+        if (patch != null && patch.graph == current) {
+            row = patch.row;
+            neighbors = patch.neighbors;
+        } else if (user >= 0) {
+            row = matrix.rowVector(user);
+            neighbors = current.neighborsOf(user);
+        } else {
             return Collections.emptyList();
         }
 
-        List<SimilarUser> similarities = new ArrayList<>();
-
-        for (Map.Entry<Long, Map<Long, Double>> entry : matrix.entrySet()) {
-            Long otherUserId = entry.getKey();
-            if (otherUserId.equals(targetUserId))
-                continue;
+        if (neighbors.size() == 0) {
+            return Collections.emptyList();
+        }
 
-            Map<Long, Double> otherUserRatings = entry.getValue();
-            double similarity = cosineSimilarity(targetUserRatings, otherUserRatings);
+        // 2. Similarity-weighted average of the neighbors' ratings per item
+        SparseAccumulator acc = predictRatings(current, neighbors);
 
-            if (similarity > 0) {
-                similarities.add(new SimilarUser(otherUserId, similarity));
+        // 3. Keep the top-N items the user hasn't interacted with
+        TopNHeap top = new TopNHeap(topN);
+        for (int n = 0; n < acc.size(); n++) {
+            int item = acc.index(n);
+            if (row.contains(item)) {
+                continue;
+            }
+            double prediction = acc.a(item) / acc.b(item);
+            if (prediction > 0) {
+                top.offer(prediction, item);
             }
         }
 
-        return similarities.stream()
-                .sorted((a, b) -> Double.compare(b.getSimilarity(), a.getSimilarity()))
-                .limit(topN)
-                .collect(Collectors.toList());
+        List<Long> recommendations = new ArrayList<>(top.size());
+        for (int item : top.drainDescending()) {
+            recommendations.add(matrix.getItemIndex().idAt(item));
+        }
+        return recommendations;
     }
 
     /**
-     * Calculate cosine similarity between two users
+     * Predict ratings for items based on similar users; a = weighted rating
+     * sum, b = similarity sum, indexed by item
      */
-    private double cosineSimilarity(Map<Long, Double> user1, Map<Long, Double> user2) {
-        Set<Long> commonItems = new HashSet<>(user1.keySet());
-        commonItems.retainAll(user2.keySet());
-
-        if (commonItems.isEmpty())
-            return 0.0;
+    private SparseAccumulator predictRatings(UserNeighborGraph current, UserNeighborGraph.Neighbors neighbors) {
+        SparseRatingMatrix matrix = current.getMatrix();
+        SparseAccumulator acc = ACCUMULATOR.get().reset(matrix.getNumItems());
+
+        for (int n = 0; n < neighbors.size(); n++) {
+            int neighbor = neighbors.getUsers()[n];
+            double similarity = neighbors.getSimilarities()[n];
+
+            UserPatch patch = patches.isEmpty() ? null
+                    : patches.get(matrix.getUserIndex().idAt(neighbor));
+            SparseVector row = patch != null && patch.graph == current ? patch.row : matrix.rowVector(neighbor);
+            for (int p = 0; p < row.size(); p++) {
+                acc.add(row.index(p), row.value(p) * similarity, similarity, 0);
+            }
+        }
+        return acc;
+    }
 
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
+    /**
+     * Build the first graph at once and then every rebuild interval, off the
+     * startup thread so no request waits for it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRebuilds() {
+        rebuilder.scheduleWithFixedDelay(() -> {
+            try {
+                rebuildGraph();
+            } catch (RuntimeException e) {
+                // Keep serving the previous graph; retried next interval
+                log.error("User neighbor graph rebuild failed", e);
+            }
+        }, 0, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+    }
 
-        for (Long itemId : commonItems) {
-            double rating1 = user1.get(itemId);
-            double rating2 = user2.get(itemId);
+    /**
+     * Rebuild the neighbor graph from a fresh snapshot, then re-apply the
+     * patches recorded while it was being built
+     *
+     * @return the new graph, or null if the snapshot could not be read
+     */
+    public synchronized UserNeighborGraph rebuildGraph() {
+        long startSequence;
+        synchronized (patchLock) {
+            startSequence = patchSequence;
+        }
 
-            dotProduct += rating1 * rating2;
-            norm1 += rating1 * rating1;
-            norm2 += rating2 * rating2;
+        SparseRatingMatrix matrix;
+        try {
+            dataExporter.refreshSnapshot();
+            matrix = dataExporter.exportRatingMatrix();
+        } catch (IOException e) {
+            log.error("Could not read the interaction snapshot", e);
+            return null;
         }
 
-        if (norm1 == 0 || norm2 == 0)
-            return 0.0;
+        long start = System.currentTimeMillis();
+        MinHashLshIndex lsh = lshEnabled ? MinHashLshIndex.build(matrix, lshBands, lshRows, buildThreads) : null;
+        UserNeighborGraph built = UserNeighborGraph.build(matrix, numNeighbors, buildThreads, lsh);
+
+        synchronized (patchLock) {
+            graph = built;
+            // Interactions tracked before the build started are in the snapshot
+            patches.values().removeIf(patch -> patch.sequence <= startSequence);
+            for (UserPatch patch : new ArrayList<>(patches.values())) {
+                patches.put(patch.userId, derive(built, patch.userId, patch.deltaItems, patch.deltaRatings,
+                        patch.sequence, null));
+            }
+        }
+        log.info("Built user neighbor graph: {} users, k={}, {} candidates, {} patches carried over, {}ms",
+                matrix.getNumUsers(), numNeighbors, lsh != null ? "LSH " + lshBands + "x" + lshRows : "exact",
+                patches.size(), System.currentTimeMillis() - start);
+        return built;
+    }
 
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInteractionTracked(InteractionTrackedEvent event) {
+        if (!incremental || graph == null) {
+            return;
+        }
+        patchExecutor.execute(() -> {
+            try {
+                patch(event.getUserId(), event.getEventId(), event.getImplicitRating());
+            } catch (RuntimeException e) {
+                log.warn("Neighbor patch failed for user {} event {}", event.getUserId(), event.getEventId(), e);
+            }
+        });
     }
 
     /**
-     * Predict ratings for items based on similar users
+     * Record a (user, event, rating) change and recompute that user's row
+     * and neighbors against the current graph
      */
-    private Map<Long, Double> predictRatings(Long userId,
-            List<SimilarUser> similarUsers,
-            Map<Long, Map<Long, Double>> matrix) {
-        Map<Long, Double> predictions = new HashMap<>();
-        Map<Long, Double> similaritySum = new HashMap<>();
-
-        for (SimilarUser similarUser : similarUsers) {
-            Map<Long, Double> ratings = matrix.get(similarUser.getUserId());
-            if (ratings == null)
-                continue;
-
-            for (Map.Entry<Long, Double> entry : ratings.entrySet()) {
-                Long eventId = entry.getKey();
-                Double rating = entry.getValue();
-
-                predictions.merge(eventId,
-                        rating * similarUser.getSimilarity(),
-                        Double::sum);
-                similaritySum.merge(eventId,
-                        similarUser.getSimilarity(),
-                        Double::sum);
+    private void patch(Long userId, Long eventId, double rating) {
+        synchronized (patchLock) {
+            UserPatch previous = patches.get(userId);
+            long[] items;
+            float[] ratings;
+            if (previous == null) {
+                items = new long[] { eventId };
+                ratings = new float[] { (float) rating };
+            } else {
+                int existing = -1;
+                for (int n = 0; n < previous.deltaItems.length; n++) {
+                    if (previous.deltaItems[n] == eventId) {
+                        existing = n;
+                    }
+                }
+                int size = previous.deltaItems.length + (existing < 0 ? 1 : 0);
+                items = Arrays.copyOf(previous.deltaItems, size);
+                ratings = Arrays.copyOf(previous.deltaRatings, size);
+                int slot = existing < 0 ? size - 1 : existing;
+                items[slot] = eventId;
+                ratings[slot] = (float) rating;
+            }
+            // Fold only the new event into the signature the patch already has
+            int[] signature = null;
+            if (previous != null && previous.graph == graph && previous.signature != null) {
+                signature = previous.signature.clone();
+                graph.getLsh().update(signature, eventId);
             }
+            patches.put(userId, derive(graph, userId, items, ratings, ++patchSequence, signature));
         }
+    }
 
-        // Normalize by similarity sum
-        for (Map.Entry<Long, Double> entry : predictions.entrySet()) {
-            Long eventId = entry.getKey();
-            double sum = similaritySum.get(eventId);
-            if (sum > 0) {
-                predictions.put(eventId, entry.getValue() / sum);
+    /**
+     * Merge the graph's row of a user with its tracked changes (events not
+     * in the graph yet are left out) and find the merged row's neighbors
+     *
+     * @param signature up-to-date MinHash signature, or null to derive it
+     *                  from the graph's one and the changes
+     */
+    private UserPatch derive(UserNeighborGraph current, Long userId, long[] deltaItems, float[] deltaRatings,
+            long sequence, int[] signature) {
+        SparseRatingMatrix matrix = current.getMatrix();
+        int user = matrix.row(userId);
+
+        // Graph row first, then the changes, so a changed rating wins
+        SparseVector base = user >= 0 ? matrix.rowVector(user) : SparseVector.EMPTY;
+        int[] items = new int[base.size() + deltaItems.length];
+        float[] values = new float[items.length];
+        int size = 0;
+        for (int n = 0; n < base.size(); n++) {
+            items[size] = base.index(n);
+            values[size++] = base.value(n);
+        }
+        for (int n = 0; n < deltaItems.length; n++) {
+            int item = matrix.getItemIndex().indexOf(deltaItems[n]);
+            if (item >= 0) {
+                items[size] = item;
+                values[size++] = deltaRatings[n];
+            }
+        }
+        SparseVector row = SparseVector.of(items, values, size);
+
+        MinHashLshIndex lsh = current.getLsh();
+        UserNeighborGraph.Neighbors neighbors;
+        if (lsh == null) {
+            neighbors = UserNeighborGraph.compute(matrix, row, user, ACCUMULATOR.get(),
+                    new TopNHeap(current.getK()));
+        } else {
+            if (signature == null) {
+                signature = lsh.signature(user);
+                for (long itemId : deltaItems) {
+                    lsh.update(signature, itemId);
+                }
             }
+            neighbors = UserNeighborGraph.compute(matrix, row, user, lsh, signature, ACCUMULATOR.get(),
+                    new TopNHeap(current.getK()));
         }
+        return new UserPatch(userId, deltaItems, deltaRatings, sequence, current, row, neighbors, signature);
+    }
 
-        return predictions;
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+        patchExecutor.shutdownNow();
     }
 
-    @lombok.Data
-    @lombok.AllArgsConstructor
-    private static class SimilarUser {
-        private Long userId;
-        private double similarity;
+    /**
+     * Interactions tracked for a user since the graph was built, and the
+     * user's row and neighbors recomputed with them
+     */
+    private static class UserPatch {
+        private final Long userId;
+        private final long[] deltaItems;
+        private final float[] deltaRatings;
+        private final long sequence;
+        private final UserNeighborGraph graph; // the graph row/neighbors index into
+        private final SparseVector row;
+        private final UserNeighborGraph.Neighbors neighbors;
+        private final int[] signature; // MinHash signature when the graph uses LSH
+
+        private UserPatch(Long userId, long[] deltaItems, float[] deltaRatings, long sequence,
+                UserNeighborGraph graph, SparseVector row, UserNeighborGraph.Neighbors neighbors,
+                int[] signature) {
+            this.userId = userId;
+            this.deltaItems = deltaItems;
+            this.deltaRatings = deltaRatings;
+            this.sequence = sequence;
+            this.graph = graph;
+            this.row = row;
+            this.neighbors = neighbors;
+            this.signature = signature;
+        }
     }
 }
-
-
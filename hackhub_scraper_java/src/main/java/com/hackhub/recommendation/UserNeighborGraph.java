@@ -0,0 +1,190 @@
+package com.hackhub.recommendation;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed top-K most similar users of every user of a
+ * {@link SparseRatingMatrix}, stored as two flat arrays of numUsers * K
+ * entries (neighbor index, similarity), best first and padded with -1.
+ *
+ * Similarity is cosine over the items two users have in common. Neighbors
+ * of a row are found by walking the item-to-users postings (the CSC half of
+ * the matrix) of the row's items, so only co-rating users are scored. With
+ * a {@link MinHashLshIndex}, only the users sharing an LSH bucket are scored
+ * instead (exactly, by merge join), trading recall for time when popular
+ * items make the postings long.
+ */
+public class UserNeighborGraph {
+
+    private static final int BLOCK_SIZE = 256;
+    private static final ThreadLocal<SparseAccumulator> ACCUMULATOR =
+            ThreadLocal.withInitial(SparseAccumulator::new);
+
+    @Getter
+    private final SparseRatingMatrix matrix;
+    @Getter
+    private final int k;
+    @Getter
+    private final MinHashLshIndex lsh; // null = exact candidates from postings
+    private final int[] neighbors;
+    private final float[] similarities;
+
+    private UserNeighborGraph(SparseRatingMatrix matrix, int k, MinHashLshIndex lsh, int[] neighbors,
+            float[] similarities) {
+        this.matrix = matrix;
+        this.k = k;
+        this.lsh = lsh;
+        this.neighbors = neighbors;
+        this.similarities = similarities;
+    }
+
+    public static UserNeighborGraph build(SparseRatingMatrix matrix, int k, int threads) {
+        return build(matrix, k, threads, null);
+    }
+
+    /**
+     * Compute every user's neighbor list, blocks of users in parallel
+     *
+     * @param lsh candidate source, or null to score every co-rating user
+     */
+    public static UserNeighborGraph build(SparseRatingMatrix matrix, int k, int threads, MinHashLshIndex lsh) {
+        int numUsers = matrix.getNumUsers();
+        int[] neighbors = new int[numUsers * k];
+        float[] similarities = new float[numUsers * k];
+        Arrays.fill(neighbors, -1);
+
+        int blocks = (numUsers + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        try {
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block -> {
+                SparseAccumulator acc = ACCUMULATOR.get();
+                TopNHeap heap = new TopNHeap(k);
+                int end = Math.min(numUsers, (block + 1) * BLOCK_SIZE);
+                for (int user = block * BLOCK_SIZE; user < end; user++) {
+                    SparseVector row = matrix.rowVector(user);
+                    Neighbors found = lsh == null
+                            ? compute(matrix, row, user, acc, heap)
+                            : compute(matrix, row, user, lsh, lsh.signature(user), acc, heap);
+                    System.arraycopy(found.users, 0, neighbors, user * k, found.size());
+                    System.arraycopy(found.similarities, 0, similarities, user * k, found.size());
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Neighbor graph build interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Neighbor graph build failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return new UserNeighborGraph(matrix, k, lsh, neighbors, similarities);
+    }
+
+    /**
+     * Stored neighbors of a dense user index
+     */
+    public Neighbors neighborsOf(int user) {
+        int off = user * k;
+        int count = 0;
+        while (count < k && neighbors[off + count] >= 0) {
+            count++;
+        }
+        return new Neighbors(Arrays.copyOfRange(neighbors, off, off + count),
+                Arrays.copyOfRange(similarities, off, off + count));
+    }
+
+    /**
+     * Top neighbors of a row of item ratings, which need not be a row of the
+     * matrix (e.g. a row patched with interactions tracked since the build)
+     *
+     * @param exclude dense index of the row's own user, or -1
+     */
+    public static Neighbors compute(SparseRatingMatrix matrix, SparseVector row, int exclude,
+            SparseAccumulator acc, TopNHeap heap) {
+        acc.reset(matrix.getNumUsers());
+        for (int n = 0; n < row.size(); n++) {
+            double rating = row.value(n);
+            SparseVector raters = matrix.columnVector(row.index(n));
+            for (int m = 0; m < raters.size(); m++) {
+                int other = raters.index(m);
+                if (other != exclude) {
+                    double otherRating = raters.value(m);
+                    // Norms over the common items only
+                    acc.add(other, rating * otherRating, rating * rating, otherRating * otherRating);
+                }
+            }
+        }
+
+        for (int n = 0; n < acc.size(); n++) {
+            int other = acc.index(n);
+            double similarity = cosine(acc, other);
+            if (similarity > 0) {
+                heap.offer(similarity, other);
+            }
+        }
+
+        int[] users = heap.drainDescending();
+        float[] sims = new float[users.length];
+        for (int n = 0; n < users.length; n++) {
+            sims[n] = (float) cosine(acc, users[n]);
+        }
+        return new Neighbors(users, sims);
+    }
+
+    /**
+     * Top neighbors of a row among the users sharing an LSH bucket with its
+     * signature, each scored exactly
+     */
+    public static Neighbors compute(SparseRatingMatrix matrix, SparseVector row, int exclude,
+            MinHashLshIndex lsh, int[] signature, SparseAccumulator acc, TopNHeap heap) {
+        acc.reset(matrix.getNumUsers());
+        lsh.candidates(signature, exclude, acc);
+        for (int n = 0; n < acc.size(); n++) {
+            int other = acc.index(n);
+            double similarity = row.overlapCosine(matrix.rowVector(other));
+            acc.add(other, similarity, 0, 0);
+            if (similarity > 0) {
+                heap.offer(similarity, other);
+            }
+        }
+
+        int[] users = heap.drainDescending();
+        float[] sims = new float[users.length];
+        for (int n = 0; n < users.length; n++) {
+            sims[n] = (float) acc.a(users[n]);
+        }
+        return new Neighbors(users, sims);
+    }
+
+    private static double cosine(SparseAccumulator acc, int user) {
+        double norm1 = acc.b(user);
+        double norm2 = acc.c(user);
+        if (norm1 == 0 || norm2 == 0) {
+            return 0.0;
+        }
+        return acc.a(user) / (Math.sqrt(norm1) * Math.sqrt(norm2));
+    }
+
+    /**
+     * Neighbor user indices with their similarities, best first
+     */
+    @Getter
+    public static class Neighbors {
+        private final int[] users;
+        private final float[] similarities;
+
+        public Neighbors(int[] users, float[] similarities) {
+            this.users = users;
+            this.similarities = similarities;
+        }
+
+        public int size() {
+            return users.length;
+        }
+    }
+}
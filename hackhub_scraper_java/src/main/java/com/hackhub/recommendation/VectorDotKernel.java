@@ -0,0 +1,37 @@
+package com.hackhub.recommendation;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD dot product using the Vector API at the platform's preferred width.
+ * Only instantiated through {@link DotKernels} when the incubator module is
+ * present.
+ */
+final class VectorDotKernel implements DotKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int f = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; f < bound; f += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + f);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOffset + f);
+            acc = va.fma(vb, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; f < length; f++) {
+            sum += a[aOffset + f] * b[bOffset + f];
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "vector, " + SPECIES.length() + " doubles/lane";
+    }
+}
@@ -1,16 +1,21 @@
 package com.hackhub.repository;
 
+import com.hackhub.dto.InteractionRating;
 import com.hackhub.model.Interaction;
 import com.hackhub.model.InteractionType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface InteractionRepository extends JpaRepository<Interaction, Long> {
@@ -51,6 +56,41 @@ public interface InteractionRepository extends JpaRepository<Interaction, Long>
             @Param("eventId") Long eventId,
             @Param("type") InteractionType type);
 
+    // Dataset size for recommender stats: total, distinct users, distinct events
+    @Query("SELECT COUNT(i), COUNT(DISTINCT i.user.id), COUNT(DISTINCT i.event.id) FROM Interaction i")
+    List<Object[]> countInteractionsUsersAndEvents();
+
+    // Distinct events a user has interacted with (recommendation filtering)
+    @Query("SELECT DISTINCT i.event.id FROM Interaction i WHERE i.user.id = :userId")
+    List<Long> findDistinctEventIdsByUserId(@Param("userId") Long userId);
+
+    // Forward-only scan of all interactions for training/export. A fetch size
+    // of Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of
+    // buffering the result set. Must be consumed inside a transaction and closed.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.hackhub.dto.InteractionRating(i.id, i.user.id, i.event.id, i.type, " +
+            "i.rating, i.viewDurationSeconds, i.timestamp) FROM Interaction i ORDER BY i.id")
+    Stream<InteractionRating> streamAllRatings();
+
+    // Rows created (id above the watermark) or changed (e.g. a re-rating)
+    // since the last incremental snapshot export
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.hackhub.dto.InteractionRating(i.id, i.user.id, i.event.id, i.type, " +
+            "i.rating, i.viewDurationSeconds, i.timestamp) FROM Interaction i " +
+            "WHERE i.id > :afterId OR i.timestamp > :since ORDER BY i.id")
+    Stream<InteractionRating> streamRatingsChangedSince(@Param("afterId") Long afterId,
+            @Param("since") LocalDateTime since);
+
+    // Interactions created or changed since a model's training data
+    @Query("SELECT COUNT(i) FROM Interaction i WHERE i.id > :afterId OR i.timestamp > :since")
+    long countChangedSince(@Param("afterId") Long afterId, @Param("since") LocalDateTime since);
+
     // Get user's recent interactions
     @Query("SELECT i FROM Interaction i WHERE i.user.id = :userId " +
             "ORDER BY i.timestamp DESC")
@@ -0,0 +1,38 @@
+package com.hackhub.repository;
+
+import com.hackhub.model.TrainingLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface TrainingLeaseRepository extends JpaRepository<TrainingLease, String> {
+
+    // Take the lease if it expired or we already hold it; 1 row updated = acquired
+    @Modifying
+    @Query("UPDATE TrainingLease l SET l.owner = :owner, l.expiresAt = :expiresAt " +
+            "WHERE l.name = :name AND (l.owner = :owner OR l.owner IS NULL OR l.expiresAt < :now)")
+    int tryAcquire(@Param("name") String name,
+            @Param("owner") String owner,
+            @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Extend a lease we still hold; 0 rows = lost it
+    @Modifying
+    @Query("UPDATE TrainingLease l SET l.expiresAt = :expiresAt " +
+            "WHERE l.name = :name AND l.owner = :owner")
+    int renew(@Param("name") String name,
+            @Param("owner") String owner,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE TrainingLease l SET l.owner = NULL, l.expiresAt = :now " +
+            "WHERE l.name = :name AND l.owner = :owner")
+    int release(@Param("name") String name,
+            @Param("owner") String owner,
+            @Param("now") LocalDateTime now);
+}
@@ -7,7 +7,9 @@ import com.hackhub.model.InteractionType;
 import com.hackhub.model.User;
 import com.hackhub.repository.EventRepository;
 import com.hackhub.repository.InteractionRepository;
+import com.hackhub.service.event.InteractionTrackedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -30,6 +32,9 @@ public class InteractionService {
     @Autowired
     private EventRepository eventRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // Track interaction
     @Transactional
     public Interaction trackInteraction(Long eventId, InteractionType type,
@@ -56,7 +61,7 @@ public class InteractionService {
                 Interaction existingInteraction = existing.get();
                 existingInteraction.setRating(rating);
                 existingInteraction.setTimestamp(LocalDateTime.now());
-                return interactionRepository.save(existingInteraction);
+                return publishTracked(interactionRepository.save(existingInteraction));
             }
         }
 
@@ -70,7 +75,19 @@ public class InteractionService {
         interaction.setSource(source);
         interaction.setTimestamp(LocalDateTime.now());
 
-        return interactionRepository.save(interaction);
+        return publishTracked(interactionRepository.save(interaction));
+    }
+
+    // Notify listeners (delivered after commit to transactional listeners)
+    private Interaction publishTracked(Interaction interaction) {
+        eventPublisher.publishEvent(new InteractionTrackedEvent(
+                interaction.getId(),
+                interaction.getUser().getId(),
+                interaction.getEvent().getId(),
+                interaction.getType(),
+                calculateImplicitRating(interaction),
+                interaction.getTimestamp()));
+        return interaction;
     }
 
     // Get user's interaction history
@@ -192,13 +209,19 @@ public class InteractionService {
 
     // Convert implicit feedback to rating (for LibRec)
     public double calculateImplicitRating(Interaction interaction) {
+        return calculateImplicitRating(interaction.getType(), interaction.getRating(),
+                interaction.getViewDurationSeconds());
+    }
+
+    // Same conversion from raw columns, for projections that skip the entity
+    public double calculateImplicitRating(InteractionType type, Double explicitRating,
+            Integer viewDurationSeconds) {
         double rating = 0.0;
 
-        switch (interaction.getType()) {
+        switch (type) {
             case VIEW:
                 rating = 1.0;
-                if (interaction.getViewDurationSeconds() != null &&
-                        interaction.getViewDurationSeconds() > 60) {
+                if (viewDurationSeconds != null && viewDurationSeconds > 60) {
                     rating = 2.0;
                 }
                 break;
@@ -215,7 +238,7 @@ public class InteractionService {
                 rating = 5.0;
                 break;
             case RATE:
-                rating = interaction.getRating() != null ? interaction.getRating() : 0.0;
+                rating = explicitRating != null ? explicitRating : 0.0;
                 break;
         }
 
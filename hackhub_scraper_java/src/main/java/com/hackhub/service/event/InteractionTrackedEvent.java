@@ -0,0 +1,22 @@
+package com.hackhub.service.event;
+
+import com.hackhub.model.InteractionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by InteractionService after an interaction is created or updated,
+ * so recommenders can refresh in-memory state without re-reading the table
+ */
+@Data
+@AllArgsConstructor
+public class InteractionTrackedEvent {
+    private Long interactionId;
+    private Long userId;
+    private Long eventId;
+    private InteractionType type;
+    private double implicitRating;
+    private LocalDateTime timestamp;
+}
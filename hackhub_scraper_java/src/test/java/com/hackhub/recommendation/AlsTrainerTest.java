@@ -0,0 +1,72 @@
+package com.hackhub.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AlsTrainerTest {
+
+    /**
+     * Users in 10 taste clusters of 100 items each; most interactions fall
+     * in the user's own cluster
+     */
+    private static RatingTriples clusteredRatings(long seed) {
+        Random random = new Random(seed);
+        SparseRatingMatrix.Builder builder = SparseRatingMatrix.builder();
+        Set<Long> seen = new HashSet<>();
+        for (int user = 0; user < 1000; user++) {
+            int cluster = user % 10;
+            for (int n = 0; n < 20; n++) {
+                int item = random.nextDouble() < 0.8 ? cluster * 100 + random.nextInt(100) : random.nextInt(1000);
+                if (seen.add((long) user * 10000 + item)) {
+                    builder.add(user, item, 1 + random.nextInt(3));
+                }
+            }
+        }
+        return builder.build().toTriples();
+    }
+
+    private static FactorModel newModel(RatingTriples ratings) {
+        FactorModel model = new FactorModel(10, ratings.getUserIndex(), ratings.getItemIndex());
+        model.setImplicitFeedback(true);
+        model.randomize(new Random(42));
+        return model;
+    }
+
+    @Test
+    public void testRanksHeldOutItemsAboveNegatives() {
+        RatingTriples ratings = clusteredRatings(1);
+        RatingTriples.Split split = ratings.split(0.2, 42);
+        ModelEvaluation.NegativeSample sample =
+                ModelEvaluation.NegativeSample.draw(split.getValidation(), split.getTrain(), 100, 10000, 42);
+
+        double randomAuc = ModelEvaluation.evaluate(newModel(ratings), split.getValidation(), sample).getAuc();
+
+        FactorModel model = newModel(ratings);
+        List<EpochStats> epochs = new AlsTrainer(10, 0.1, 10, 2).train(model, split.getTrain(), TrainingMonitor.NONE);
+        ModelEvaluation evaluation = ModelEvaluation.evaluate(model, split.getValidation(), sample);
+
+        assertEquals(10, epochs.size());
+        assertTrue(evaluation.isRanked());
+        assertTrue(Math.abs(randomAuc - 0.5) < 0.05, "random model AUC " + randomAuc);
+        assertTrue(evaluation.getAuc() > 0.8, "trained model AUC " + evaluation.getAuc());
+        assertEquals(1.0 - evaluation.getAuc(), evaluation.loss(), 1e-12);
+    }
+
+    @Test
+    public void testStopsWhenMonitorDeclines() {
+        RatingTriples ratings = clusteredRatings(2);
+        FactorModel model = newModel(ratings);
+
+        List<EpochStats> epochs = new AlsTrainer(10, 0.1, 10, 2)
+                .train(model, ratings, stats -> stats.getEpoch() < 2);
+
+        assertEquals(3, epochs.size());
+    }
+}
@@ -0,0 +1,98 @@
+package com.hackhub.recommendation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FactorModelFileTest {
+
+    @TempDir
+    Path dir;
+
+    private static FactorModel sampleModel() {
+        FactorModel model = new FactorModel(4, IdIndex.of(new long[] { 5, 7, 11 }), IdIndex.of(new long[] { 1, 2 }));
+        model.randomize(new Random(1));
+        model.getUserBiases()[1] = 0.25;
+        model.getItemBiases()[0] = -0.5;
+        model.setGlobalMean(3.5);
+        model.setImplicitFeedback(true);
+        model.setMetadata(new ModelMetadata("als", 1_700_000_000_000L, 0.9, 0.7, 42, 1234L));
+        return model;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        FactorModel model = sampleModel();
+        Path path = dir.resolve("model.bin");
+        FactorModelFile.write(model, path);
+
+        FactorModel read = FactorModelFile.read(path);
+        assertEquals(model.getNumFactors(), read.getNumFactors());
+        assertArrayEquals(model.getUserIndex().toArray(), read.getUserIndex().toArray());
+        assertArrayEquals(model.getItemIndex().toArray(), read.getItemIndex().toArray());
+        assertArrayEquals(model.getUserFactors(), read.getUserFactors());
+        assertArrayEquals(model.getItemFactors(), read.getItemFactors());
+        assertArrayEquals(model.getUserBiases(), read.getUserBiases());
+        assertArrayEquals(model.getItemBiases(), read.getItemBiases());
+        assertEquals(3.5, read.getGlobalMean());
+        assertTrue(read.isImplicitFeedback());
+        assertEquals(model.getMetadata(), read.getMetadata());
+        assertEquals(model.getMetadata(), FactorModelFile.readMetadata(path));
+    }
+
+    @Test
+    public void testRejectsFlippedByte() throws IOException {
+        Path path = dir.resolve("model.bin");
+        FactorModelFile.write(sampleModel(), path);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 20] ^= 1; // inside the item factors
+        Files.write(path, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> FactorModelFile.read(path));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    public void testRejectsTruncatedFile() throws IOException {
+        Path path = dir.resolve("model.bin");
+        FactorModelFile.write(sampleModel(), path);
+
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThrows(IOException.class, () -> FactorModelFile.read(path));
+    }
+
+    @Test
+    public void testRejectsOtherFormatVersion() throws IOException {
+        Path path = dir.resolve("model.bin");
+        FactorModelFile.write(sampleModel(), path);
+
+        // Version 1 with a valid checksum, so only the version is wrong
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(Integer.BYTES, 1);
+        int bodyEnd = bytes.capacity() - Long.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), 0, bodyEnd);
+        bytes.putLong(bodyEnd, crc.getValue());
+        Files.write(path, bytes.array());
+
+        IOException e = assertThrows(IOException.class, () -> FactorModelFile.read(path));
+        assertTrue(e.getMessage().contains("version"), e.getMessage());
+        assertThrows(IOException.class, () -> FactorModelFile.readMetadata(path));
+    }
+}
@@ -0,0 +1,115 @@
+package com.hackhub.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HnswIndexTest {
+
+    private static final int DIM = 16;
+    private static final int SIZE = 5000;
+    private static final int K = 10;
+
+    private static float[] randomVectors(int count, long seed) {
+        Random random = new Random(seed);
+        float[] vectors = new float[count * DIM];
+        for (int n = 0; n < vectors.length; n++) {
+            vectors[n] = (float) random.nextGaussian();
+        }
+        return vectors;
+    }
+
+    /**
+     * Exact k nearest nodes by squared L2 distance
+     */
+    private static Set<Integer> bruteForce(float[] vectors, float[] query, int queryOff, int k) {
+        TopNHeap heap = new TopNHeap(k);
+        for (int node = 0; node < vectors.length / DIM; node++) {
+            double distance = 0;
+            for (int d = 0; d < DIM; d++) {
+                double diff = vectors[node * DIM + d] - query[queryOff + d];
+                distance += diff * diff;
+            }
+            heap.offer(-distance, node);
+        }
+        Set<Integer> nearest = new HashSet<>();
+        for (int node : heap.drainDescending()) {
+            nearest.add(node);
+        }
+        return nearest;
+    }
+
+    private static float[] query(float[] queries, int n) {
+        float[] query = new float[DIM];
+        System.arraycopy(queries, n * DIM, query, 0, DIM);
+        return query;
+    }
+
+    @Test
+    public void testRecallAgainstExactTopN() {
+        float[] vectors = randomVectors(SIZE, 1);
+        float[] queries = randomVectors(100, 2);
+        HnswIndex index = HnswIndex.build(vectors, DIM, 16, 200, 42);
+
+        int hits = 0;
+        for (int n = 0; n < 100; n++) {
+            Set<Integer> exact = bruteForce(vectors, queries, n * DIM, K);
+            int[] found = index.search(query(queries, n), K, 100);
+            assertEquals(K, found.length);
+            for (int node : found) {
+                if (exact.contains(node)) {
+                    hits++;
+                }
+            }
+        }
+        double recall = (double) hits / (100 * K);
+        assertTrue(recall >= 0.9, "recall@" + K + " " + recall);
+    }
+
+    @Test
+    public void testFindsIndexedVectorFirst() {
+        float[] vectors = randomVectors(SIZE, 3);
+        HnswIndex index = HnswIndex.build(vectors, DIM, 16, 200, 42);
+
+        for (int node = 0; node < SIZE; node += 97) {
+            assertEquals(node, index.search(query(vectors, node), 1, 50)[0]);
+        }
+    }
+
+    @Test
+    public void testConcurrentSearchesMatchSequential() throws Exception {
+        float[] vectors = randomVectors(SIZE, 4);
+        float[] queries = randomVectors(200, 5);
+        HnswIndex index = HnswIndex.build(vectors, DIM, 16, 200, 42);
+
+        int[][] expected = new int[200][];
+        for (int n = 0; n < 200; n++) {
+            expected[n] = index.search(query(queries, n), K, 64);
+        }
+
+        // More threads than pooled visited sets
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        try {
+            @SuppressWarnings("unchecked")
+            Future<int[]>[] results = new Future[200];
+            for (int n = 0; n < 200; n++) {
+                float[] query = query(queries, n);
+                results[n] = executor.submit(() -> index.search(query, K, 64));
+            }
+            for (int n = 0; n < 200; n++) {
+                assertArrayEquals(expected[n], results[n].get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.hackhub.recommendation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InteractionSnapshotSetTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * One segment; rows are {id, rating, timestamp} in id order, user and
+     * event derived from the id
+     */
+    private InteractionSnapshot segment(String name, long[][] rows) throws IOException {
+        Path path = dir.resolve(name);
+        try (InteractionSnapshot.Writer writer = InteractionSnapshot.writer(path)) {
+            for (long[] row : rows) {
+                writer.append(row[0], row[0] % 3, row[0] % 5, row[1], row[2]);
+            }
+            writer.commit();
+        }
+        return InteractionSnapshot.open(path);
+    }
+
+    /**
+     * Live rows as {id, rating, timestamp}, in visiting order
+     */
+    private static List<long[]> rows(InteractionSnapshotSet set) throws IOException {
+        List<long[]> rows = new ArrayList<>();
+        set.forEach((segment, row) -> rows.add(
+                new long[] { segment.id(row), (long) segment.rating(row), segment.timestamp(row) }));
+        return rows;
+    }
+
+    private InteractionSnapshotSet baseWithDeltas() throws IOException {
+        InteractionSnapshot base = segment("base.snap", new long[][] {
+                { 1, 1, 100 }, { 2, 1, 100 }, { 3, 1, 100 }, { 4, 1, 100 }, { 5, 1, 100 } });
+        // 2 updated, 6 inserted
+        InteractionSnapshot delta1 = segment("delta-1.snap", new long[][] { { 2, 2, 200 }, { 6, 1, 200 } });
+        // 2 updated again, 4 and 6 updated, 7 inserted
+        InteractionSnapshot delta2 = segment("delta-2.snap", new long[][] {
+                { 2, 3, 300 }, { 4, 2, 300 }, { 6, 3, 300 }, { 7, 1, 300 } });
+        return InteractionSnapshotSet.of(List.of(base, delta1, delta2));
+    }
+
+    @Test
+    public void testLatestSegmentSupersedes() throws IOException {
+        InteractionSnapshotSet set = baseWithDeltas();
+
+        assertEquals(3, set.getNumSegments());
+        assertEquals(7, set.getSize());
+        assertEquals(6, set.getDeltaRows());
+        assertEquals(7, set.getMaxId());
+
+        List<long[]> rows = rows(set);
+        assertEquals(7, rows.size());
+        long[][] expected = {
+                { 1, 1, 100 }, { 2, 3, 300 }, { 3, 1, 100 }, { 4, 2, 300 }, { 5, 1, 100 }, { 6, 3, 300 },
+                { 7, 1, 300 } };
+        for (int n = 0; n < expected.length; n++) {
+            assertEquals(expected[n][0], rows.get(n)[0], "id of row " + n);
+            assertEquals(expected[n][1], rows.get(n)[1], "rating of id " + expected[n][0]);
+            assertEquals(expected[n][2], rows.get(n)[2], "timestamp of id " + expected[n][0]);
+        }
+    }
+
+    @Test
+    public void testHoldsOnlyLiveRows() throws IOException {
+        InteractionSnapshotSet set = baseWithDeltas();
+
+        assertTrue(set.holds(1, 100, 1));
+        assertTrue(set.holds(2, 300, 3));
+        assertFalse(set.holds(2, 100, 1)); // superseded base row
+        assertFalse(set.holds(2, 200, 2)); // superseded delta row
+        assertFalse(set.holds(3, 101, 1));
+        assertFalse(set.holds(8, 300, 1));
+    }
+
+    @Test
+    public void testCompactionKeepsLiveRowsInIdOrder() throws IOException {
+        InteractionSnapshotSet set = baseWithDeltas();
+
+        // Rewrite the set as a single base, as LibRecDataExporter compacts
+        Path path = dir.resolve("compacted.snap");
+        try (InteractionSnapshot.Writer writer = InteractionSnapshot.writer(path)) {
+            set.forEach((segment, row) -> writer.append(segment.id(row), segment.userId(row),
+                    segment.eventId(row), segment.rating(row), segment.timestamp(row)));
+            writer.commit();
+        }
+        InteractionSnapshot compacted = InteractionSnapshot.open(path);
+        InteractionSnapshotSet compactedSet = InteractionSnapshotSet.of(List.of(compacted));
+
+        assertEquals(set.getSize(), compacted.getSize());
+        assertEquals(0, compactedSet.getDeltaRows());
+        List<long[]> before = rows(set);
+        List<long[]> after = rows(compactedSet);
+        for (int n = 0; n < before.size(); n++) {
+            assertEquals(before.get(n)[0], after.get(n)[0]);
+            assertEquals(before.get(n)[1], after.get(n)[1]);
+            assertEquals(before.get(n)[2], after.get(n)[2]);
+        }
+        // Searchable by id, so later refreshes can skip rows it already holds
+        for (int row = 0; row < compacted.getSize(); row++) {
+            assertEquals(row, compacted.find(compacted.id(row)));
+        }
+        assertTrue(compactedSet.holds(4, 300, 2));
+        assertTrue(compactedSet.holds(5, 100, 1));
+    }
+}
@@ -0,0 +1,80 @@
+package com.hackhub.recommendation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InteractionSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private static void write(Path path, int rows) throws IOException {
+        try (InteractionSnapshot.Writer writer = InteractionSnapshot.writer(path)) {
+            for (int n = 0; n < rows; n++) {
+                writer.append(10L + 2 * n, 100L + n % 7, 1000L + n % 13, 1 + n % 3, 1_700_000_000L + n);
+            }
+            writer.commit();
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path path = dir.resolve("base.snap");
+        write(path, 50_000);
+
+        InteractionSnapshot snapshot = InteractionSnapshot.open(path);
+        assertEquals(50_000, snapshot.getSize());
+        assertEquals(10L + 2 * 49_999, snapshot.getMaxId());
+        for (int n = 0; n < snapshot.getSize(); n++) {
+            assertEquals(10L + 2 * n, snapshot.id(n));
+            assertEquals(100L + n % 7, snapshot.userId(n));
+            assertEquals(1000L + n % 13, snapshot.eventId(n));
+            assertEquals(1 + n % 3, snapshot.rating(n));
+            assertEquals(1_700_000_000L + n, snapshot.timestamp(n));
+        }
+    }
+
+    @Test
+    public void testFindsRowsById() throws IOException {
+        Path path = dir.resolve("base.snap");
+        write(path, 1000);
+
+        InteractionSnapshot snapshot = InteractionSnapshot.open(path);
+        assertEquals(0, snapshot.find(10));
+        assertEquals(500, snapshot.find(1010));
+        assertEquals(999, snapshot.find(2008));
+        assertEquals(-1, snapshot.find(11));
+        assertEquals(-1, snapshot.find(5000));
+    }
+
+    @Test
+    public void testEmptySnapshot() throws IOException {
+        Path path = dir.resolve("empty.snap");
+        write(path, 0);
+
+        InteractionSnapshot snapshot = InteractionSnapshot.open(path);
+        assertEquals(0, snapshot.getSize());
+        assertEquals(-1, snapshot.find(10));
+    }
+
+    @Test
+    public void testRejectsFlippedByte() throws IOException {
+        Path path = dir.resolve("base.snap");
+        write(path, 1000);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 3] ^= 1; // inside the rating column
+        Files.write(path, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> InteractionSnapshot.open(path));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+}
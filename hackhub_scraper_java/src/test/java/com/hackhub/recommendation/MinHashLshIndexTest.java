@@ -0,0 +1,127 @@
+package com.hackhub.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MinHashLshIndexTest {
+
+    private static final int K = 20;
+
+    /**
+     * Users in 300 taste clusters of 30 items; 90% of a user's items come
+     * from their cluster
+     */
+    private static SparseRatingMatrix clusteredMatrix() {
+        Random random = new Random(5);
+        SparseRatingMatrix.Builder builder = SparseRatingMatrix.builder();
+        for (int user = 0; user < 10000; user++) {
+            int cluster = random.nextInt(300);
+            for (int n = 0; n < 15; n++) {
+                int item = random.nextDouble() < 0.9 ? cluster * 30 + random.nextInt(30) : random.nextInt(9000);
+                builder.add(user, item, 1);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Exact top-K users by Jaccard similarity of item sets, via the postings
+     */
+    private static int[] topJaccard(SparseRatingMatrix matrix, int user) {
+        int[] rowPtr = matrix.getRowPtr();
+        SparseAccumulator overlap = new SparseAccumulator().reset(matrix.getNumUsers());
+        SparseVector row = matrix.rowVector(user);
+        for (int n = 0; n < row.size(); n++) {
+            SparseVector raters = matrix.columnVector(row.index(n));
+            for (int m = 0; m < raters.size(); m++) {
+                if (raters.index(m) != user) {
+                    overlap.add(raters.index(m), 1, 0, 0);
+                }
+            }
+        }
+        TopNHeap heap = new TopNHeap(K);
+        for (int n = 0; n < overlap.size(); n++) {
+            int other = overlap.index(n);
+            double common = overlap.a(other);
+            double union = (rowPtr[user + 1] - rowPtr[user]) + (rowPtr[other + 1] - rowPtr[other]) - common;
+            heap.offer(common / union, other);
+        }
+        return heap.drainDescending();
+    }
+
+    @Test
+    public void testCandidateRecallAgainstExactJaccard() {
+        SparseRatingMatrix matrix = clusteredMatrix();
+        MinHashLshIndex lsh = MinHashLshIndex.build(matrix, 40, 2, 2);
+
+        SparseAccumulator acc = new SparseAccumulator();
+        long hits = 0;
+        long total = 0;
+        long candidates = 0;
+        int samples = 0;
+        for (int user = 0; user < matrix.getNumUsers(); user += 50) {
+            acc.reset(matrix.getNumUsers());
+            lsh.candidates(lsh.signature(user), user, acc);
+            Set<Integer> found = new HashSet<>();
+            for (int n = 0; n < acc.size(); n++) {
+                found.add(acc.index(n));
+            }
+            assertFalse(found.contains(user));
+
+            for (int other : topJaccard(matrix, user)) {
+                total++;
+                if (found.contains(other)) {
+                    hits++;
+                }
+            }
+            candidates += acc.size();
+            samples++;
+        }
+        double recall = (double) hits / total;
+        double scanned = (double) candidates / samples / matrix.getNumUsers();
+        assertTrue(recall >= 0.85, "top-" + K + " Jaccard recall " + recall);
+        assertTrue(scanned < 0.25, "candidates per lookup, share of users " + scanned);
+    }
+
+    @Test
+    public void testIncrementalSignatureMatchesBuild() {
+        SparseRatingMatrix matrix = clusteredMatrix();
+        MinHashLshIndex lsh = MinHashLshIndex.build(matrix, 40, 2, 2);
+
+        for (int user = 0; user < 100; user++) {
+            int[] signature = lsh.signature(-1);
+            SparseVector row = matrix.rowVector(user);
+            for (int n = 0; n < row.size(); n++) {
+                lsh.update(signature, matrix.getItemIndex().idAt(row.index(n)));
+            }
+            assertArrayEquals(lsh.signature(user), signature);
+        }
+    }
+
+    @Test
+    public void testIdenticalUsersAlwaysCollide() {
+        SparseRatingMatrix.Builder builder = SparseRatingMatrix.builder();
+        for (long item : new long[] { 3, 8, 21, 55 }) {
+            builder.add(1, item, 1).add(2, item, 1);
+        }
+        builder.add(3, 99, 1);
+        SparseRatingMatrix matrix = builder.build();
+        MinHashLshIndex lsh = MinHashLshIndex.build(matrix, 40, 2, 1);
+
+        SparseAccumulator acc = new SparseAccumulator().reset(matrix.getNumUsers());
+        int user = matrix.row(1);
+        lsh.candidates(lsh.signature(user), user, acc);
+        int[] found = new int[acc.size()];
+        for (int n = 0; n < found.length; n++) {
+            found[n] = acc.index(n);
+        }
+        assertArrayEquals(new int[] { matrix.row(2) }, found);
+    }
+}
@@ -0,0 +1,83 @@
+package com.hackhub.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SgdTrainerTest {
+
+    private static final int EPOCHS = 15;
+
+    /**
+     * Sparse explicit ratings from a rank-3 taste model plus noise
+     */
+    private static RatingTriples sparseRatings() {
+        Random random = new Random(7);
+        int numUsers = 3000;
+        int numItems = 2000;
+        double[][] userTaste = new double[numUsers][3];
+        double[][] itemTaste = new double[numItems][3];
+        for (double[] taste : userTaste) {
+            for (int f = 0; f < 3; f++) {
+                taste[f] = random.nextGaussian();
+            }
+        }
+        for (double[] taste : itemTaste) {
+            for (int f = 0; f < 3; f++) {
+                taste[f] = random.nextGaussian();
+            }
+        }
+
+        SparseRatingMatrix.Builder builder = SparseRatingMatrix.builder();
+        for (int n = 0; n < 60_000; n++) {
+            int user = random.nextInt(numUsers);
+            int item = random.nextInt(numItems);
+            double score = 3.0 + 0.5 * random.nextGaussian();
+            for (int f = 0; f < 3; f++) {
+                score += 0.4 * userTaste[user][f] * itemTaste[item][f];
+            }
+            builder.add(user, item, Math.max(1.0, Math.min(5.0, Math.round(score))));
+        }
+        return builder.build().toTriples();
+    }
+
+    private static List<EpochStats> train(RatingTriples ratings, int threads) {
+        FactorModel model = new FactorModel(10, ratings.getUserIndex(), ratings.getItemIndex());
+        model.setGlobalMean(ratings.mean());
+        model.randomize(new Random(42));
+        return new SgdTrainer(EPOCHS, 0.01, 0.05, threads).train(model, ratings, TrainingMonitor.NONE);
+    }
+
+    @Test
+    public void testParallelMatchesSingleThreadedPerEpoch() {
+        RatingTriples ratings = sparseRatings();
+
+        List<EpochStats> serial = train(ratings, 1);
+        List<EpochStats> parallel = train(ratings, 4);
+
+        assertEquals(EPOCHS, serial.size());
+        assertEquals(EPOCHS, parallel.size());
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            double expected = serial.get(epoch).getRmse();
+            double actual = parallel.get(epoch).getRmse();
+            assertEquals(expected, actual, 0.01 * expected, "training RMSE of epoch " + epoch);
+        }
+        assertTrue(serial.get(EPOCHS - 1).getRmse() < serial.get(0).getRmse());
+    }
+
+    @Test
+    public void testSingleThreadedIsDeterministic() {
+        RatingTriples ratings = sparseRatings();
+
+        List<EpochStats> first = train(ratings, 1);
+        List<EpochStats> second = train(ratings, 1);
+
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            assertEquals(first.get(epoch).getRmse(), second.get(epoch).getRmse(), 0.0);
+        }
+    }
+}
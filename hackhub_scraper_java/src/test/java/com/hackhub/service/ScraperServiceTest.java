@@ -38,7 +38,7 @@ public class ScraperServiceTest {
         if (!events.isEmpty()) {
             Event e = events.get(0);
             System.out.println("First MLH Event: " + e.getTitle());
-            System.out.println("URL: " + e.getUrl());
+            System.out.println("URL: " + e.getSourceUrl());
             System.out.println("Desc length: " + (e.getDescription() != null ? e.getDescription().length() : "null"));
         }
 